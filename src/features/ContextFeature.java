@@ -0,0 +1,11 @@
+package features;
+
+/**
+ * A Feature that can read what it needs from an EvaluationContext, shared
+ * with the other features of the position, instead of computing it.
+ */
+public interface ContextFeature extends Feature {
+
+	public float evaluate(EvaluationContext context);
+
+}
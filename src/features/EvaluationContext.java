@@ -0,0 +1,183 @@
+package features;
+
+import java.util.LinkedList;
+
+import quoridor.Game;
+import quoridor.Move;
+import quoridor.Player;
+
+/**
+ * EvaluationContext holds what the features of a position share, so that
+ * evaluating a position with many features computes each of them once.
+ * 
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Gives the distances to the goal, the paths to the next row and the
+ * walls left of the player evaluated for and of its opponent.</li>
+ * <li>Computes each of them the first time a feature asks for it, and only
+ * once per position.</li>
+ * </ul>
+ * 
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>An AI keeps one context and resets it for every position it
+ * evaluates, so evaluating does not allocate.</li>
+ * <li>The distances are read from the distance fields of the game, see
+ * Game.distanceToGoal().</li>
+ * <li>The quantities LinearFeatures are made of are numbered, see term(), so
+ * that an evaluator can sum them in a loop over arrays.</li>
+ * </ul>
+ * 
+ */
+
+public class EvaluationContext {
+
+	// not computed yet
+	static final int UNKNOWN = -1;
+
+	/**
+	 * The quantities of the context a LinearFeature is made of, see term().
+	 */
+	public static final int CONSTANT = 0;
+	public static final int PLAYER_DISTANCE = 1;
+	public static final int OPPONENT_DISTANCE = 2;
+	public static final int PLAYER_WALLS = 3;
+	public static final int OPPONENT_WALLS = 4;
+	public static final int TERMS = 5;
+
+	Game game;
+	Player player;
+	Player opponent;
+	int playerDistance;
+	int opponentDistance;
+	int playerNextRowSquares;
+	int opponentNextRowSquares;
+
+	/**
+	 * Creates a context, to be reset before it is used.
+	 */
+	public EvaluationContext() {
+	}
+
+	/**
+	 * Creates a context for a position.
+	 * 
+	 * @param g
+	 *            the game, in the position.
+	 * @param player
+	 *            the player the position is evaluated for.
+	 */
+	public EvaluationContext(Game g, Player player) {
+		reset(g, player);
+	}
+
+	/**
+	 * Forgets what was computed, for a new position.
+	 * 
+	 * @param g
+	 *            the game, in the position.
+	 * @param player
+	 *            the player the position is evaluated for.
+	 */
+	public void reset(Game g, Player player) {
+		this.game = g;
+		this.player = player;
+		this.opponent = g.players().other(player);
+		playerDistance = UNKNOWN;
+		opponentDistance = UNKNOWN;
+		playerNextRowSquares = UNKNOWN;
+		opponentNextRowSquares = UNKNOWN;
+	}
+
+	public Game game() {
+		return game;
+	}
+
+	public Player player() {
+		return player;
+	}
+
+	public Player opponent() {
+		return opponent;
+	}
+
+	/**
+	 * The number of steps from the pawn of the player to its goal.
+	 */
+	public int playerDistance() {
+		if (playerDistance == UNKNOWN) {
+			playerDistance = game.distanceToGoal(player);
+		}
+		return playerDistance;
+	}
+
+	/**
+	 * The number of steps from the pawn of the opponent to its goal.
+	 */
+	public int opponentDistance() {
+		if (opponentDistance == UNKNOWN) {
+			opponentDistance = game.distanceToGoal(opponent);
+		}
+		return opponentDistance;
+	}
+
+	/**
+	 * The number of squares on the shortest path of the player to the next
+	 * row towards its goal, the one it is on included, see
+	 * Game.movesToNextColumn().
+	 * 
+	 * @return the number of squares, 0 if the player is on its goal.
+	 */
+	public int playerNextRowSquares() {
+		if (playerNextRowSquares == UNKNOWN) {
+			playerNextRowSquares = squares(game.movesToNextColumn(player));
+		}
+		return playerNextRowSquares;
+	}
+
+	/**
+	 * The number of squares on the shortest path of the opponent to the next
+	 * row towards its goal, see playerNextRowSquares().
+	 */
+	public int opponentNextRowSquares() {
+		if (opponentNextRowSquares == UNKNOWN) {
+			opponentNextRowSquares = squares(game.movesToNextColumn(opponent));
+		}
+		return opponentNextRowSquares;
+	}
+
+	public int playerWalls() {
+		return player.wallsLeft();
+	}
+
+	public int opponentWalls() {
+		return opponent.wallsLeft();
+	}
+
+	/**
+	 * One of the quantities of the context.
+	 * 
+	 * @param term
+	 *            the quantity, CONSTANT to OPPONENT_WALLS.
+	 * @return its value, 1 for CONSTANT.
+	 */
+	public int term(int term) {
+		switch (term) {
+		case PLAYER_DISTANCE:
+			return playerDistance();
+		case OPPONENT_DISTANCE:
+			return opponentDistance();
+		case PLAYER_WALLS:
+			return playerWalls();
+		case OPPONENT_WALLS:
+			return opponentWalls();
+		default:
+			return 1;
+		}
+	}
+
+	private static int squares(LinkedList<Move> path) {
+		return path == null ? 0 : path.size();
+	}
+
+}
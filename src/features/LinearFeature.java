@@ -0,0 +1,22 @@
+package features;
+
+/**
+ * A ContextFeature that is a weighted sum of the quantities of the
+ * EvaluationContext, see EvaluationContext.term(), so that an evaluator can
+ * add up the weights of such features once and evaluate them together.
+ */
+public interface LinearFeature extends ContextFeature {
+
+	/**
+	 * Adds the coefficients of the feature, times a weight, to the
+	 * coefficients of the quantities of the context.
+	 * 
+	 * @param weight
+	 *            the weight of the feature.
+	 * @param coefficients
+	 *            the coefficients, indexed by EvaluationContext.CONSTANT to
+	 *            EvaluationContext.OPPONENT_WALLS.
+	 */
+	public void addCoefficients(float weight, float[] coefficients);
+
+}
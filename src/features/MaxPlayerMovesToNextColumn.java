@@ -13,11 +13,15 @@ import quoridor.WeightedMove;
 import quoridor.WeightedMoveComparator;
 import quoridor.Move.MoveType;
 
-public class MaxPlayerMovesToNextColumn implements Feature {
+public class MaxPlayerMovesToNextColumn implements ContextFeature {
 
 	@Override
 	public float evaluate(Game g, Player player) {
-		LinkedList<Move> movesToNextColumn = g.movesToNextColumn(player);
-		return (float) Math.pow(movesToNextColumn.size(), -1);
+		return evaluate(new EvaluationContext(g, player));
+	}
+
+	@Override
+	public float evaluate(EvaluationContext context) {
+		return (float) Math.pow(context.playerNextRowSquares(), -1);
 	}
 }
@@ -6,9 +6,21 @@ import quoridor.Game;
 import quoridor.Move;
 import quoridor.Player;
 
-public class MaxPlayerShortestPath implements Feature {
+public class MaxPlayerShortestPath implements LinearFeature {
 	@Override
 	public float evaluate(Game g, Player player) {
-		return g.shortestPath(player).size(); 
+		return evaluate(new EvaluationContext(g, player));
+	}
+
+	@Override
+	public float evaluate(EvaluationContext context) {
+		// squares on the path, like shortestPath(player).size()
+		return context.playerDistance() + 1;
+	}
+
+	@Override
+	public void addCoefficients(float weight, float[] coefficients) {
+		coefficients[EvaluationContext.PLAYER_DISTANCE] += weight;
+		coefficients[EvaluationContext.CONSTANT] += weight;
 	}
 }
@@ -3,11 +3,21 @@ package features;
 import quoridor.Game;
 import quoridor.Player;
 
-public class MaxPlayerWalls implements Feature{
+public class MaxPlayerWalls implements LinearFeature {
 
 	@Override
 	public float evaluate(Game g, Player player) {
-		return g.players.other(player).wallsLeft();
+		return evaluate(new EvaluationContext(g, player));
+	}
+
+	@Override
+	public float evaluate(EvaluationContext context) {
+		return context.opponentWalls();
+	}
+
+	@Override
+	public void addCoefficients(float weight, float[] coefficients) {
+		coefficients[EvaluationContext.OPPONENT_WALLS] += weight;
 	}
 
 }
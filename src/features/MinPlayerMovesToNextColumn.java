@@ -6,9 +6,21 @@ import quoridor.Game;
 import quoridor.Move;
 import quoridor.Player;
 
-public class MinPlayerMovesToNextColumn implements Feature {
+public class MinPlayerMovesToNextColumn implements LinearFeature {
 	@Override
 	public float evaluate(Game g, Player player) {
-		return g.shortestPath(g.players().other(player)).size(); 
+		return evaluate(new EvaluationContext(g, player));
+	}
+
+	@Override
+	public float evaluate(EvaluationContext context) {
+		// squares on the path, like shortestPath(other).size()
+		return context.opponentDistance() + 1;
+	}
+
+	@Override
+	public void addCoefficients(float weight, float[] coefficients) {
+		coefficients[EvaluationContext.OPPONENT_DISTANCE] += weight;
+		coefficients[EvaluationContext.CONSTANT] += weight;
 	}
 }
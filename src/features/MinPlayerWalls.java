@@ -3,11 +3,21 @@ package features;
 import quoridor.Game;
 import quoridor.Player;
 
-public class MinPlayerWalls implements Feature{
+public class MinPlayerWalls implements LinearFeature {
 
 	@Override
 	public float evaluate(Game g, Player player) {
-		return player.wallsLeft();
+		return evaluate(new EvaluationContext(g, player));
+	}
+
+	@Override
+	public float evaluate(EvaluationContext context) {
+		return context.playerWalls();
+	}
+
+	@Override
+	public void addCoefficients(float weight, float[] coefficients) {
+		coefficients[EvaluationContext.PLAYER_WALLS] += weight;
 	}
 
 }
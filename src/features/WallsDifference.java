@@ -6,14 +6,23 @@ import quoridor.Game;
 import quoridor.Move;
 import quoridor.Player;
 
-public class WallsDifference implements Feature {
+public class WallsDifference implements LinearFeature {
 
 
 	@Override
 	public float evaluate(Game g, Player player) {
-		Player p = player;
-		Player o = g.players().other(player);
-		return p.wallsLeft() - o.wallsLeft();
+		return evaluate(new EvaluationContext(g, player));
+	}
+
+	@Override
+	public float evaluate(EvaluationContext context) {
+		return context.playerWalls() - context.opponentWalls();
+	}
+
+	@Override
+	public void addCoefficients(float weight, float[] coefficients) {
+		coefficients[EvaluationContext.PLAYER_WALLS] += weight;
+		coefficients[EvaluationContext.OPPONENT_WALLS] -= weight;
 	}
 
 }
@@ -1,12 +1,15 @@
 ﻿package quoridor;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import quoridor.Move.MoveType;
-import util.Pair;
 import util.Two;
+import features.EvaluationContext;
 import features.Feature;
 import features.MaxPlayerMovesToNextColumn;
 import features.MaxPlayerShortestPath;
@@ -42,6 +45,88 @@ public class AI {
 			minPlayerShortestPath, maxPlayerShortestPath, minPlayerShortestPath};
 	// float[] weights = new float[] { 0.0f, -1f, 1f, 1f };
 	float[] weights;
+	// what the features of the position being evaluated share
+	final EvaluationContext context = new EvaluationContext();
+	// the weighted sum of the features, compiled for the weights of the
+	// player at the start of each search, see compileEvaluator()
+	CompiledEvaluator evaluator;
+	TranspositionTable table;
+	// receives the moves generated at each depth of the search
+	int[][] moveBuffers;
+	// the principal variation found from each ply, see updatePv()
+	int[][] pv;
+	int[] pvLength;
+	// the principal variation of the last search that was completed
+	int[] principalVariation = new int[0];
+	// what this search did, see stats()
+	final SearchStats stats = new SearchStats();
+	// the order moves are searched in, learnt as the search goes
+	MoveOrdering ordering = new MoveOrdering(stats);
+	// the exact outcome of the races, shared with the workers and helpers
+	RaceSolver raceSolver;
+	// code of the best move found at the root of the search
+	int bestRootMove;
+	// seed of the noise added to the heuristic, see noise()
+	long noiseSeed;
+
+	/**
+	 * The deepest an iterative deepening search goes, even with time left.
+	 */
+	public static final int MAX_DEPTH = 32;
+
+	// late move reductions: quiet walls searched after this many moves, with
+	// at least this depth left, are searched one ply shallower first
+	static final int LMR_MOVES = 4;
+	static final int LMR_DEPTH = 3;
+	// set to search with late move reductions, see isReduced()
+	boolean reductions;
+
+	// score of a race won on the spot, a race won n plies from the root
+	// scores n less
+	static final float RACE_WIN = 1e6f;
+	// scores beyond this one are races, see toTable()
+	static final float RACE_SCORE = RACE_WIN / 2;
+
+	// depth to search to when there is no time budget
+	int searchDepth;
+	// time budget of a move in milliseconds, 0 for none
+	long moveTimeMillis;
+	// time at which the search has to stop, 0 for none
+	volatile long deadline;
+	// set when the deadline is passed, the search then unwinds
+	boolean aborted;
+	long nodes;
+	// depth of the last search that was completed
+	int completedDepth;
+
+	// threads searching the root moves, null to search on this thread only
+	ForkJoinPool pool;
+	// idle workers of the parallel search, see takeWorker()
+	ConcurrentLinkedQueue<AI> workers;
+	volatile boolean workerAborted;
+	// the copy of the game a worker searches
+	Game searchGame;
+	// the copy of the game the last move was searched on, see rootGame()
+	Game rootGame;
+	// the moves leading to the searched position: the moves of the game, and
+	// the predicted move of the opponent when pondering
+	LinkedList<Move> searchMoves;
+	// set when a pondering search has to stop, see ponder()
+	volatile boolean ponderStopped;
+	// time at which the pondering search started
+	long ponderStart;
+
+	// searches with helpers sharing the transposition table, see
+	// startHelpers(), instead of splitting the root moves
+	boolean lazySmp;
+	AI[] helpers;
+	ForkJoinTask<?>[] helperTasks;
+	// set when the helpers have to stop
+	volatile boolean helpersStopped;
+	// the AI a helper searches for, null if this AI is not a helper
+	AI helped;
+	// nodes searched by the helpers
+	long helperNodes;
 
 	/**
 	 * Constructor for AI. It requireds type Game to be passed in.
@@ -50,169 +135,922 @@ public class AI {
 	 *            the game AI is required for.
 	 */
 	public AI(Game game) {
+		this(game, game.myTurn(), game.moves);
+	}
+
+	/**
+	 * Constructor for an AI searching the position after some moves for a
+	 * player, who may not be the one to move in the game, see Ponderer.
+	 * 
+	 * @param game
+	 *            the game AI is required for.
+	 * @param player
+	 *            the AIPlayer the search is for.
+	 * @param searchMoves
+	 *            the moves leading to the position to search.
+	 */
+	AI(Game game, Player player, LinkedList<Move> searchMoves) {
 		this.game = game;
-		player = game.myTurn();
+		this.player = player;
+		this.searchMoves = searchMoves;
 		this.weights = ((AIPlayer) player).weights;
+		this.table = ((AIPlayer) player).transpositionTable();
+		this.searchDepth = ((AIPlayer) player).searchDepth;
+		this.moveTimeMillis = ((AIPlayer) player).moveTimeMillis;
+		this.reductions = ((AIPlayer) player).reductions;
+		this.noiseSeed = ((AIPlayer) player).noiseSeed;
+		this.raceSolver = ((AIPlayer) player).raceSolver();
+		if (((AIPlayer) player).threads > 1) {
+			this.pool = ((AIPlayer) player).pool();
+			this.lazySmp = ((AIPlayer) player).lazySmp;
+		}
 	}
 
 	/**
-	 * Creates a move based on the required intelligence of the AI
+	 * Constructor for a worker of a parallel search. The worker evaluates
+	 * positions and reduces moves like its parent, on its own copy of the
+	 * game. The root moves are only split for a parent without transposition
+	 * table nor late move reductions, see AIPlayer.pool(). A Lazy SMP helper
+	 * is given the table of its parent, see startHelpers().
 	 * 
-	 * @return a Move
+	 * @param parent
+	 *            the AI the worker searches for.
+	 * @param searchGame
+	 *            the copy of the game the worker searches.
+	 */
+	AI(AI parent, Game searchGame) {
+		this.game = parent.game;
+		this.player = parent.player;
+		this.weights = parent.weights;
+		this.evaluator = parent.evaluator;
+		this.noiseSeed = parent.noiseSeed;
+		this.reductions = parent.reductions;
+		this.raceSolver = parent.raceSolver;
+		this.searchMoves = parent.searchMoves;
+		this.searchGame = searchGame;
+	}
+
+	/**
+	 * Creates a move based on the required intelligence of the AI. The move
+	 * of the opening book of the player is played if it has one for the
+	 * position, see OpeningBook.
+	 * 
+	 * @return a Move, or null if the player to move has none
 	 */
 	public Move createMove() {
-		Move move = null;
-		move = proMove();
+		stats.reset();
+		long start = System.currentTimeMillis();
+		long allocated = SearchStats.threadAllocatedBytes();
+		Move move = bookMove();
+		if (move != null) {
+			stats.source = "book";
+		} else {
+			move = proMove();
+		}
+		stats.move = move == null ? -1 : MoveCode.fromMove(move);
+		stats.millis = System.currentTimeMillis() - start;
+		if (allocated >= 0) {
+			stats.allocatedBytes = SearchStats.threadAllocatedBytes()
+					- allocated;
+		}
+		if (pool != null && ((AIPlayer) player).measureSpeedup
+				&& "search".equals(stats.source)) {
+			measureBaseline();
+		}
 		return move;
 	}
 
 	/**
-	 * Makes a move with alpha-beta pruning look ahead based on a heuristic
+	 * Searches the move again on this thread only, and records in the
+	 * statistics the nodes and time it took, to compare with the search on
+	 * the threads of the pool, see AIPlayer.measureSpeedup. The search is
+	 * done with a transposition table of its own, so that it does not find
+	 * the entries the parallel search just stored.
+	 */
+	private void measureBaseline() {
+		AI baseline = new AI(game, player, searchMoves);
+		baseline.pool = null;
+		baseline.lazySmp = false;
+		if (table != null) {
+			baseline.table = new TranspositionTable(
+					((AIPlayer) player).transpositionTableBytes);
+		}
+		long start = System.currentTimeMillis();
+		baseline.proMove();
+		stats.baseline(baseline.stats.nodes, System.currentTimeMillis()
+				- start);
+	}
+
+	/**
+	 * What the last createMove() did to find its move: nodes, cutoffs, time
+	 * spent and so on, including the work of the threads that helped it.
+	 * 
+	 * @return the statistics of the move.
+	 */
+	public SearchStats stats() {
+		return stats;
+	}
+
+	/**
+	 * The move of the opening book of the player for the position of the
+	 * game, if it is valid.
 	 * 
-	 * @return a Move
+	 * @return a Move, or null if there is none.
+	 */
+	private Move bookMove() {
+		OpeningBook book = ((AIPlayer) player).openingBook;
+		if (book == null) {
+			return null;
+		}
+		int code = book.probe(game.hash());
+		if (code < 0) {
+			return null;
+		}
+		Move move = MoveCode.toMove(code);
+		// a hash collision could give a move of another position
+		return game.isValid(move, player) ? move : null;
+	}
+
+	/**
+	 * Makes a move with alpha-beta pruning look ahead based on a heuristic.
+	 * The search works on move codes, see MoveCode, and only the move it
+	 * returns is a Move.
+	 * 
+	 * Without a time budget, the search goes to the depth of the player. With
+	 * one, it is iterative deepening: the position is searched one ply deeper
+	 * at a time, until the budget runs out, and the move of the deepest search
+	 * that was completed is played. Each search tries first the best moves
+	 * the previous one found, at the root and through the transposition
+	 * table.
+	 * 
+	 * With Lazy SMP, helpers search the same position on the other threads
+	 * until this search is over, see startHelpers().
+	 * 
+	 * Once a player is out of walls, the race is solved for the walls on the
+	 * board, see RaceSolver. If its outcome is known, its best move is played
+	 * without searching, and otherwise the search uses it for the positions
+	 * where no wall was placed.
+	 * 
+	 * @return a Move, or null if the player to move has none
 	 */
 	private Move proMove() {
-		Pair<Float, Move> result = maxValue(game.moves, 0,
-				Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
-		return result._2();
+		evaluator = compileEvaluator();
+		long copyStart = System.nanoTime();
+		Game searchGame = rootGame();
+		stats.tempGameNanos += System.nanoTime() - copyStart;
+		if (searchGame.players()._1().wallsLeft() == 0
+				|| searchGame.players()._2().wallsLeft() == 0) {
+			if (raceSolver.solve(searchGame) != RaceSolver.UNKNOWN) {
+				bestRootMove = raceSolver.bestMove(searchGame);
+				principalVariation = bestRootMove < 0 ? new int[0]
+						: new int[] { bestRootMove };
+				stats.source = "race";
+				return bestRootMove < 0 ? null : MoveCode.toMove(bestRootMove);
+			}
+		}
+		if (table != null) {
+			table.newSearch();
+		}
+		bestRootMove = -1;
+		nodes = 0;
+		if (lazySmp) {
+			startHelpers();
+		} else if (pool != null) {
+			workers = new ConcurrentLinkedQueue<AI>();
+			workerAborted = false;
+		}
+		if (moveTimeMillis <= 0) {
+			search(searchGame, searchDepth);
+		} else {
+			long start = System.currentTimeMillis();
+			deadline = start + moveTimeMillis;
+			for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+				search(searchGame, depth);
+				// a deeper search takes longer than all the previous ones,
+				// don't start one that has little chance to be completed
+				if (aborted
+						|| System.currentTimeMillis() - start > moveTimeMillis / 2) {
+					break;
+				}
+			}
+		}
+		if (lazySmp) {
+			stopHelpers();
+		}
+		deadline = 0;
+		aborted = false;
+		stats.depth = completedDepth;
+		stats.nodes += nodes;
+		if (workers != null) {
+			for (AI worker : workers) {
+				worker.stats.nodes = worker.nodes;
+				stats.add(worker.stats);
+			}
+		}
+		return bestRootMove < 0 ? null : MoveCode.toMove(bestRootMove);
 	}
 
-	private int desiredDepth = 3;
+	/**
+	 * The copy of the game to search at the root. An AI making more than one
+	 * move of a game, see MatchRunner, keeps the copy of its last move and
+	 * only plays the moves made since on it.
+	 * 
+	 * @return the copy of the game, in the position after searchMoves.
+	 */
+	private Game rootGame() {
+		rootGame = followGame(rootGame, searchMoves);
+		return rootGame;
+	}
 
 	/**
-	 * The first part of the alpha-beta pruning
+	 * Brings a copy of a game made by createTempGame() to the position after
+	 * some moves. If the copy is in a position these moves go through, the
+	 * moves made since are played on it, and otherwise a new copy is made.
 	 * 
+	 * @param copy
+	 *            the copy of the game, left as the last search found it, or
+	 *            null for none.
 	 * @param moves
-	 *            a list of all the moves made so far
-	 * @param currentSearchDepth
-	 *            the current depth of the search
-	 * @param alphaMax
-	 *            the max value of alpha
-	 * @param betaMin
-	 *            the minimum value of beta
-	 * @return a Pair of argument, the alpha value of the move and the move
-	 */
-	private Pair<Float, Move> maxValue(LinkedList<Move> moves,
-			int currentSearchDepth, Float alphaMax, Float betaMin) {
-		Game tempGame = createTempGame(moves);
-		ArrayList<Move> moveList;
-		Move bestMove;
-		float value = Float.NEGATIVE_INFINITY;
-
-		if (currentSearchDepth == desiredDepth || isGoalState(moves)) {
-			ArrayList<Move> m = findPossibleMoves(tempGame);
-			// any move?
-			return Pair.pair(heuristic(moves), m.get(0));
-		}
-
-		moveList = findPossibleMoves(tempGame);
-		bestMove = moveList.get(0);
-		for (int i = 0; i < moveList.size(); i++) {
-			Game tempGameTwo = createTempGame(moves);
-			tempGameTwo.move(moveList.get(i), tempGameTwo.myTurn());
-
-			value = minValue(tempGameTwo.moves, currentSearchDepth + 1,
-					alphaMax, betaMin);
-			if (value > alphaMax) {
-				alphaMax = value;
-				bestMove = moveList.get(i);
+	 *            the moves leading to the position.
+	 * @return the copy, or a new one, in the position after the moves.
+	 */
+	static Game followGame(Game copy, LinkedList<Move> moves) {
+		if (copy != null && copy.moves.size() <= moves.size()) {
+			Iterator<Move> played = moves.iterator();
+			boolean follows = true;
+			for (Move move : copy.moves) {
+				if (!move.equals(played.next())) {
+					follows = false;
+					break;
+				}
+			}
+			if (follows) {
+				while (played.hasNext()) {
+					copy.move(played.next(), copy.myTurn());
+				}
+				return copy;
+			}
+		}
+		return createTempGame(moves);
+	}
+
+	/**
+	 * Starts the helpers of a Lazy SMP search, one per thread of the pool but
+	 * the one of this AI. Each helper is a worker that searches the position
+	 * with iterative deepening on its own copy of the game, until
+	 * stopHelpers() is called. The helpers and this AI only communicate
+	 * through the transposition table: the entries they store make the
+	 * others cut off and order their moves sooner. Every other helper starts
+	 * one ply deeper, and each one orders its moves a little differently, so
+	 * that they don't all search the same nodes at the same time.
+	 */
+	private void startHelpers() {
+		int count = ((AIPlayer) player).threads - 1;
+		helpers = new AI[count];
+		helperTasks = new ForkJoinTask<?>[count];
+		helpersStopped = false;
+		helperNodes = 0;
+		for (int i = 0; i < count; i++) {
+			long copyStart = System.nanoTime();
+			AI helper = new AI(this, createTempGame(searchMoves));
+			stats.tempGameNanos += System.nanoTime() - copyStart;
+			helper.table = table;
+			helper.helped = this;
+			helper.ordering.orderShift = i + 1;
+			helpers[i] = helper;
+			helperTasks[i] = pool.submit(new LazySmpHelper(helper));
+		}
+	}
+
+	/**
+	 * Stops the helpers of a Lazy SMP search and waits for them.
+	 */
+	private void stopHelpers() {
+		helpersStopped = true;
+		for (int i = 0; i < helpers.length; i++) {
+			helperTasks[i].join();
+			helperNodes += helpers[i].nodes;
+			helpers[i].stats.nodes = helpers[i].nodes;
+			stats.add(helpers[i].stats);
+		}
+		helpers = null;
+		helperTasks = null;
+	}
+
+	/**
+	 * The search of a helper of a Lazy SMP search, see startHelpers(). Its
+	 * results are only in the transposition table.
+	 */
+	void helpSearch() {
+		bestRootMove = -1;
+		int first = 1 + ordering.orderShift % 2;
+		for (int depth = first; depth <= MAX_DEPTH && !aborted; depth++) {
+			search(searchGame, depth);
+		}
+	}
+
+	/**
+	 * Ponders: searches the position after the predicted move of the
+	 * opponent while the opponent thinks, see Ponderer. The search deepens
+	 * until stopPondering() is called, or until it reaches the depth of the
+	 * player when it has no time budget. After ponderHit(), it stops like
+	 * proMove() would have, had it started with the pondering. Its best move
+	 * is then in bestRootMove, and the positions it searched are in the
+	 * transposition table either way.
+	 */
+	void ponder() {
+		evaluator = compileEvaluator();
+		Game searchGame = createTempGame(searchMoves);
+		if (table != null) {
+			table.newSearch();
+		}
+		ponderStart = System.currentTimeMillis();
+		bestRootMove = -1;
+		nodes = 0;
+		for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+			search(searchGame, depth);
+			if (aborted || (moveTimeMillis <= 0 && depth >= searchDepth)) {
+				break;
+			}
+			if (deadline > 0
+					&& System.currentTimeMillis() - ponderStart > moveTimeMillis / 2) {
+				break;
 			}
+		}
+	}
 
-			if (alphaMax >= betaMin) {
-				return Pair.pair(alphaMax, bestMove);
+	/**
+	 * Tells a pondering search that the opponent played the predicted move:
+	 * the time spent pondering counts in the time budget of the move, so the
+	 * search stops right away if it has used it up.
+	 */
+	void ponderHit() {
+		if (moveTimeMillis > 0) {
+			deadline = Math.max(ponderStart + moveTimeMillis,
+					System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Stops a pondering search as soon as possible, its result being of no
+	 * use.
+	 */
+	void stopPondering() {
+		ponderStopped = true;
+	}
+
+	/**
+	 * Searches the game to a depth. If the search is aborted, bestRootMove is
+	 * left as the previous search found it.
+	 * 
+	 * @param searchGame
+	 *            the game being searched
+	 * @param depth
+	 *            the depth to search to
+	 */
+	private void search(Game searchGame, int depth) {
+		desiredDepth = depth;
+		ensureBuffers(depth);
+		if (pool != null && !lazySmp) {
+			searchRootInParallel(searchGame);
+		} else {
+			negamax(searchGame, 0, depth, Float.NEGATIVE_INFINITY,
+					Float.POSITIVE_INFINITY);
+			if (!aborted) {
+				principalVariation = line(0);
 			}
 		}
+		if (!aborted) {
+			completedDepth = depth;
+		}
+	}
+
+	/**
+	 * Makes sure the buffers of the search are big enough for a depth.
+	 */
+	private void ensureBuffers(int depth) {
+		if (moveBuffers == null || moveBuffers.length <= depth) {
+			moveBuffers = new int[depth + 1][Game.MAX_MOVES];
+			pv = new int[depth + 1][depth + 1];
+			pvLength = new int[depth + 1];
+		}
+		ordering.ensurePlies(depth + 1);
+	}
+
+	/**
+	 * The principal variation of the last search that was completed: the
+	 * move to play, then the best answer to it found, and so on.
+	 * 
+	 * @return the codes of the moves, see MoveCode
+	 */
+	public int[] principalVariation() {
+		return principalVariation.clone();
+	}
 
-		return Pair.pair(alphaMax, bestMove);
+	/**
+	 * The principal variation found from a ply of the last search.
+	 */
+	int[] line(int ply) {
+		return Arrays.copyOfRange(pv[ply], ply, pvLength[ply]);
 	}
 
 	/**
-	 * The second part of the alpha-beta pruning
+	 * Searches the root moves on the threads of the pool, see
+	 * ParallelRootSearch. The moves are ordered like negamax() orders them,
+	 * so that the same move is found.
 	 * 
-	 * @param moves
-	 *            a list of all the moves made so far
-	 * @param currentSearchDepth
-	 *            the current depth of the search
-	 * @param alphaMax
-	 *            the max value of alpha
-	 * @param betaMin
-	 *            the minimum value of beta
-	 * @return the minimum value of beta of type int
-	 */
-	private float minValue(LinkedList<Move> moves, int currentSearchDepth,
-			float alphaMax, float betaMin) {
-		Pair<Float, Move> value = null;
-		if (currentSearchDepth == desiredDepth || isGoalState(moves)) {
-			return heuristic(moves);
-		}
-
-		Game tempGame = createTempGame(moves);
-		ArrayList<Move> moveList = findPossibleMoves(tempGame);
-		for (int i = 0; i < moveList.size(); i++) {
-			Game tempGameTwo = createTempGame(moves);
-			tempGameTwo.move(moveList.get(i), tempGameTwo.myTurn());
-
-			value = maxValue(tempGameTwo.moves, currentSearchDepth + 1,
-					alphaMax, betaMin);
-			betaMin = Math.min(value._1, betaMin);
-			if (alphaMax >= betaMin) {
-				return betaMin;
+	 * @param g
+	 *            the game being searched
+	 */
+	private void searchRootInParallel(Game g) {
+		int[] moves = moveBuffers[0];
+		int count = g.generateMoves(moves);
+		if (count == 0) {
+			bestRootMove = -1;
+			principalVariation = new int[0];
+			return;
+		}
+		int hashMove = -1;
+		if (table != null) {
+			long entry = table.probe(g.hash());
+			if (entry != 0) {
+				hashMove = table.move(entry);
 			}
 		}
+		if (bestRootMove >= 0) {
+			hashMove = bestRootMove;
+		}
+		ordering.order(g, moves, count, 0, hashMove);
+		ordering.sort(moves, count, 0);
 
-		return betaMin;
+		int[][] lines = new int[count][];
+		int best = ParallelRootSearch.search(pool, this, moves, count, lines);
+		for (AI worker : workers) {
+			nodes += worker.nodes;
+			worker.nodes = 0;
+		}
+		if (best < 0) {
+			aborted = true;
+		} else {
+			bestRootMove = moves[best];
+			principalVariation = new int[lines[best].length + 1];
+			principalVariation[0] = bestRootMove;
+			System.arraycopy(lines[best], 0, principalVariation, 1,
+					lines[best].length);
+		}
 	}
 
-	private float evaluate(Game tempGame, Player player, float[] weights) {
-		float score = 0;
-		for (int i = 1; i < features.length; i++) {
-			score += weights[i - 1] * features[i].evaluate(tempGame, player);
+	/**
+	 * Lends a worker to a parallel search, ready to search at the current
+	 * depth. Workers are created the first time they are needed, with their
+	 * own copy of the game, and reused for the rest of the move. The killers
+	 * and history a worker learnt on its previous root move are forgotten, so
+	 * that a root move is searched the same whichever worker searches it and
+	 * after which moves.
+	 * 
+	 * @return a worker that only the calling thread uses.
+	 */
+	AI takeWorker() {
+		AI worker = workers.poll();
+		if (worker == null) {
+			long copyStart = System.nanoTime();
+			worker = new AI(this, createTempGame(searchMoves));
+			worker.stats.tempGameNanos += System.nanoTime() - copyStart;
 		}
+		worker.desiredDepth = desiredDepth;
+		worker.deadline = deadline;
+		worker.aborted = false;
+		worker.ensureBuffers(desiredDepth);
+		worker.ordering.forget();
+		return worker;
+	}
+
+	/**
+	 * Gives back a worker lent by takeWorker().
+	 */
+	void returnWorker(AI worker) {
+		if (worker.aborted) {
+			workerAborted = true;
+		}
+		workers.add(worker);
+	}
+
+	/**
+	 * Checks if a worker ran out of time during the parallel search.
+	 */
+	boolean workersAborted() {
+		return workerAborted;
+	}
+
+	/**
+	 * Checks, before a root move is given to a worker, if the parallel search
+	 * has to stop because the deadline is passed.
+	 * 
+	 * @return true if the root move must not be searched
+	 */
+	boolean abortWorkers() {
+		if (deadline > 0 && desiredDepth > 1
+				&& System.currentTimeMillis() >= deadline) {
+			workerAborted = true;
+		}
+		return workerAborted;
+	}
+
+	/**
+	 * Searches one root move on the game of a worker.
+	 * 
+	 * @param move
+	 *            the code of the root move
+	 * @param alpha
+	 *            the score the move has to beat
+	 * @return the score of the move, exact if it is above alpha. The
+	 *         principal variation after the move is then line(1).
+	 */
+	float searchRootMove(int move, float alpha) {
+		searchGame.makeMove(move);
+		float score = -negamax(searchGame, 1, desiredDepth - 1,
+				Float.NEGATIVE_INFINITY, -alpha);
+		searchGame.unmakeMove();
 		return score;
 	}
 
+	private int desiredDepth = 3;
+
+	/**
+	 * Counts a node, and checks from time to time if the deadline is passed.
+	 * The first ply is always completed, so that there is a move to play. A
+	 * helper checks instead if it has been stopped.
+	 * 
+	 * @return true if the search has to unwind
+	 */
+	private boolean isOutOfTime() {
+		nodes++;
+		if ((nodes & 1023) != 0) {
+			return aborted;
+		}
+		if (helped != null) {
+			if (helped.helpersStopped) {
+				aborted = true;
+			}
+		} else if (ponderStopped
+				|| (deadline > 0 && desiredDepth > 1 && System
+						.currentTimeMillis() >= deadline)) {
+			aborted = true;
+		}
+		return aborted;
+	}
+
+	/**
+	 * The alpha-beta search, in negamax form: the score of a position is for
+	 * the player to move, and the score of a move is minus the score of the
+	 * position it leads to. Moves are made and unmade on the searched game,
+	 * which is left as it was. The transposition table is looked up first and
+	 * updated with the result.
+	 * 
+	 * The first move is searched with the whole window. The next ones are
+	 * first searched with a null window just above alpha, which only tells if
+	 * they beat the best move so far, and again with the whole window if they
+	 * do (principal variation search). Late quiet walls are first searched one
+	 * ply shallower, see isReduced().
+	 * 
+	 * At the root, the best move is kept in bestRootMove. The principal
+	 * variation of each ply is kept in pv.
+	 * 
+	 * @param g
+	 *            the game being searched
+	 * @param ply
+	 *            the number of moves made since the root
+	 * @param depth
+	 *            the number of plies left to search
+	 * @param alpha
+	 *            the score the player to move is already sure to get
+	 * @param beta
+	 *            the score the opponent lets the player to move get at most
+	 * @return the score of the position for the player to move, exact if it is
+	 *         between alpha and beta, an upper bound if it is not above alpha
+	 *         and a lower bound if it is not below beta
+	 */
+	private float negamax(Game g, int ply, int depth, float alpha, float beta) {
+		float alphaStart = alpha;
+		int hashMove = -1;
+		pvLength[ply] = ply;
+
+		if (isOutOfTime()) {
+			return 0;
+		}
+		if (ply > 0) {
+			int race = raceSolver.probe(g);
+			if (race != RaceSolver.UNKNOWN) {
+				// the winner of the race is known, and how soon from the root
+				return race > 0 ? RACE_WIN - (ply + race) : -RACE_WIN
+						+ (ply - race);
+			}
+		}
+		if (table != null) {
+			long entry = table.probe(g.hash());
+			stats.tableProbes++;
+			if (entry != 0) {
+				stats.tableHits++;
+				hashMove = table.move(entry);
+				// the root needs a move that is known to be valid
+				if (ply > 0 && isCutoff(entry, ply, depth, alpha, beta)) {
+					return fromTable(table.score(entry), ply);
+				}
+			}
+		}
+
+		if (depth <= 0 || isGoalState(g)) {
+			stats.leaves++;
+			boolean timed = isTimed();
+			long evaluationStart = timed ? System.nanoTime() : 0;
+			float score = heuristic(g);
+			if (timed) {
+				stats.evaluationNanos += (System.nanoTime() - evaluationStart)
+						* SearchStats.TIMING_RATE;
+			}
+			if (!isMaxPlayer(g)) {
+				score = -score;
+			}
+			store(g, ply, depth, TranspositionTable.EXACT, score, -1);
+			return score;
+		}
+
+		int[] moves = moveBuffers[ply];
+		int count = isTimed() ? generateTimedMoves(g, moves) : g
+				.generateMoves(moves);
+		if (ply == 0 && bestRootMove >= 0) {
+			// the best move of the previous iteration
+			hashMove = bestRootMove;
+		}
+		ordering.order(g, moves, count, ply, hashMove);
+		float best = Float.NEGATIVE_INFINITY;
+		int bestMove = -1;
+		for (int i = 0; i < count; i++) {
+			int move = ordering.next(moves, count, ply, i);
+			// placing a wall updates the shortest paths, see DistanceField
+			boolean timed = MoveCode.isWall(move) && isTimed();
+			long pathStart = timed ? System.nanoTime() : 0;
+			g.makeMove(move);
+			if (timed) {
+				stats.pathNanos += (System.nanoTime() - pathStart)
+						* SearchStats.TIMING_RATE;
+			}
+			float value;
+			if (i == 0) {
+				value = -negamax(g, ply + 1, depth - 1, -beta, -alpha);
+			} else {
+				float nullBeta = Math.nextUp(alpha);
+				int reduction = isReduced(move, ply, depth, i) ? 1 : 0;
+				value = -negamax(g, ply + 1, depth - 1 - reduction, -nullBeta,
+						-alpha);
+				if (value > alpha && reduction > 0 && !aborted) {
+					value = -negamax(g, ply + 1, depth - 1, -nullBeta, -alpha);
+				}
+				if (value > alpha && value < beta && !aborted) {
+					value = -negamax(g, ply + 1, depth - 1, -beta, -alpha);
+				}
+			}
+			g.unmakeMove();
+			if (aborted) {
+				return 0;
+			}
+			if (value > best) {
+				best = value;
+				bestMove = move;
+			}
+			if (value > alpha) {
+				alpha = value;
+				updatePv(ply, move);
+			}
+			if (alpha >= beta) {
+				ordering.cutoff(g, move, ply, depth, i);
+				break;
+			}
+		}
+
+		if (best >= beta) {
+			store(g, ply, depth, TranspositionTable.LOWER, best, bestMove);
+		} else if (best > alphaStart) {
+			store(g, ply, depth, TranspositionTable.EXACT, best, bestMove);
+		} else {
+			store(g, ply, depth, TranspositionTable.UPPER, best, -1);
+		}
+		if (ply == 0) {
+			bestRootMove = bestMove;
+		}
+		return best;
+	}
+
+	/**
+	 * Checks if a move is searched with a late move reduction: a wall that is
+	 * not among the first moves, away from the root, with depth left, and that
+	 * the move ordering found quiet. The reduced search is done again at full
+	 * depth if the wall turns out to beat alpha. The root moves are never
+	 * split with reductions: the score of a reduced search depends on the
+	 * alpha bound and on what the move ordering learnt before, which depend on
+	 * the order the threads end in.
+	 */
+	private boolean isReduced(int move, int ply, int depth, int index) {
+		return reductions && ply > 0 && depth >= LMR_DEPTH && index >= LMR_MOVES
+				&& ordering.isQuiet(move, ply, index);
+	}
+
+	/**
+	 * Records a move that beat alpha as the first move of the principal
+	 * variation of its ply, followed by the principal variation found after
+	 * it.
+	 */
+	private void updatePv(int ply, int move) {
+		int[] line = pv[ply];
+		line[ply] = move;
+		int length = pvLength[ply + 1];
+		System.arraycopy(pv[ply + 1], ply + 1, line, ply + 1, length - ply
+				- 1);
+		pvLength[ply] = length;
+	}
+
+	/**
+	 * Checks if the player to move in the searched game is the player of this
+	 * AI, whose score the heuristic gives.
+	 */
+	private boolean isMaxPlayer(Game g) {
+		return (g.myTurn() == g.players()._1()) == player.equals(game
+				.players()._1());
+	}
+
+	/**
+	 * Checks if the work being done at this node is timed, see SearchStats.
+	 */
+	private boolean isTimed() {
+		return (nodes & (SearchStats.TIMING_RATE - 1)) == 0;
+	}
+
+	/**
+	 * Generates the moves of a position like Game.generateMoves(), timing the
+	 * legal walls and the rest of the moves apart.
+	 */
+	private int generateTimedMoves(Game g, int[] moves) {
+		long start = System.nanoTime();
+		// the legal walls are kept for generateMoves()
+		g.legalHorizontalWalls();
+		long walls = System.nanoTime();
+		int count = g.generateMoves(moves);
+		stats.wallNanos += (walls - start) * SearchStats.TIMING_RATE;
+		stats.moveGenNanos += (System.nanoTime() - walls)
+				* SearchStats.TIMING_RATE;
+		return count;
+	}
+
+	/**
+	 * Checks if a transposition table entry is deep enough and has a score
+	 * that can be used without searching the position again.
+	 * 
+	 * @param entry
+	 *            the entry of the position in the table
+	 * @param ply
+	 *            the ply of the position in the search
+	 * @param depth
+	 *            the depth the position has to be searched to
+	 * @param alpha
+	 *            the alpha bound of the search of the position
+	 * @param beta
+	 *            the beta bound of the search of the position
+	 * @return true if the score of the entry can be returned
+	 */
+	private boolean isCutoff(long entry, int ply, int depth, float alpha,
+			float beta) {
+		if (table.depth(entry) < depth) {
+			return false;
+		}
+		float score = fromTable(table.score(entry), ply);
+		byte bound = table.bound(entry);
+		return bound == TranspositionTable.EXACT
+				|| (bound == TranspositionTable.LOWER && score >= beta)
+				|| (bound == TranspositionTable.UPPER && score <= alpha);
+	}
+
+	/**
+	 * Stores the result of the search of a position in the transposition
+	 * table, if there is one.
+	 */
+	private void store(Game g, int ply, int depth, byte bound, float score,
+			int move) {
+		if (table != null) {
+			table.store(g.hash(), depth, bound, toTable(score, ply), move);
+		}
+	}
+
+	/**
+	 * The score of a position as stored in the transposition table. The score
+	 * of a race counts the plies from the root, the table counts them from
+	 * the position, which can be reached at another ply.
+	 * 
+	 * @param score
+	 *            the score of the position in the search
+	 * @param ply
+	 *            the ply of the position in the search
+	 * @return the score to store
+	 */
+	static float toTable(float score, int ply) {
+		if (score > RACE_SCORE) {
+			return score + ply;
+		}
+		if (score < -RACE_SCORE) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	/**
+	 * The score of a position read from the transposition table, at a ply of
+	 * the search, see toTable().
+	 * 
+	 * @param score
+	 *            the score stored in the table
+	 * @param ply
+	 *            the ply of the position in the search
+	 * @return the score of the position in the search
+	 */
+	static float fromTable(float score, int ply) {
+		if (score > RACE_SCORE) {
+			return score - ply;
+		}
+		if (score < -RACE_SCORE) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Evaluates a position for a player, with the features and weights of
+	 * this AI compiled by compileEvaluator(). The features share what they
+	 * compute through the context of the position.
+	 * 
+	 * @param tempGame
+	 *            the game being searched
+	 * @param player
+	 *            the player of the game being searched to evaluate for
+	 * @return the score of the position, higher being better for the player
+	 */
+	protected float evaluate(Game tempGame, Player player) {
+		context.reset(tempGame, player);
+		return evaluator.evaluate(context);
+	}
+
+	/**
+	 * Compiles the features and weights of this AI, or gives the evaluator
+	 * the player compiled for them already, see CompiledEvaluator.
+	 * 
+	 * @return the evaluator of the features of this AI
+	 */
+	protected CompiledEvaluator compileEvaluator() {
+		// the feature at index 1 has the first weight
+		return ((AIPlayer) player).evaluator(features, 0);
+	}
+
 	/**
 	 * The heuristic for alpha-beta pruning
 	 * 
-	 * @param moves
-	 *            a list of all the moves played so far
+	 * @param tempGame
+	 *            the game being searched
 	 * @return an int, the heuristic value of a move
 	 */
-	private float heuristic(LinkedList<Move> moves) {
-
-		Game tempGame = createTempGame(moves);
+	private float heuristic(Game tempGame) {
 
 		if (player.equals(game.players()._1())) {
 			// max is player 1
-			return (float) (evaluate(tempGame, tempGame.players()._1, weights) + new Random()
-					.nextFloat() * 0.1);
+			return evaluate(tempGame, tempGame.players()._1)
+					+ noise(tempGame);
 		} else {
-			return (float) (evaluate(tempGame, tempGame.players()._2, weights) + new Random()
-					.nextFloat() * 0.1);
+			return evaluate(tempGame, tempGame.players()._2)
+					+ noise(tempGame);
 		}
 	}
 
 	/**
-	 * Checks if the state of the moves is a winning game state
+	 * A small noise added to the heuristic, so that the AI does not always
+	 * play the same game. It is drawn from the hash of the position and a seed
+	 * of this AI, so that a position always gets the same score within a
+	 * search, whichever thread searches it.
 	 * 
-	 * @param moves
-	 *            the list of all moves made so far
-	 * @return boolean true if it is a winning state, false if not
+	 * @param g
+	 *            the game being searched
+	 * @return a number between 0 and 0.1
 	 */
-	private boolean isGoalState(LinkedList<Move> moves) {
-
-		if (!moves.isEmpty()) {
-			for (int i = 0; i < 9; i++) {
-				if ((moves.getLast().coord().x() == i && moves.getLast()
-						.coord().y() == 1)
-						|| (moves.getLast().coord().x() == i && moves.getLast()
-								.coord().y() == 9)) {
-					return true;
-				}
-			}
-		}
+	private float noise(Game g) {
+		long h = (g.hash() ^ noiseSeed) * 0x9E3779B97F4A7C15L;
+		return (h >>> 40) / (float) (1 << 24) * 0.1f;
+	}
 
-		return false;
+	/**
+	 * Checks if the searched game is in a winning game state
+	 * 
+	 * @param g
+	 *            the game being searched
+	 * @return boolean true if it is a winning state, false if not
+	 */
+	private boolean isGoalState(Game g) {
+		return g.isOver();
 	}
 
 	/**
@@ -296,73 +1134,24 @@ public class AI {
 	}
 
 	/**
-	 * Creates a copy of a game with the exact game state
+	 * Creates a copy of a game with the exact game state. It is only called
+	 * once per search, the search then makes and unmakes moves on the copy.
 	 * 
 	 * @param moves
 	 *            the list of all moves made so far
 	 * @return a Game
 	 */
-	private Game createTempGame(LinkedList<Move> moves) {
+	static Game createTempGame(LinkedList<Move> moves) {
 		Player tempPl1 = new Human("Player 1");
 		Player tempPl2 = new Human("Player 2");
 		Game tempGame = new Game(Two.two(tempPl1, tempPl2));
 
 		tempGame.initGame(null);
-		for (int j = 0; j < moves.size(); j++) {
-			tempGame.move(moves.get(j), tempGame.myTurn());
+		for (Move move : moves) {
+			tempGame.move(move, tempGame.myTurn());
 		}
 
 		return tempGame;
 	}
 
-	/**
-	 * Finds all the possible moves of the current player in a game
-	 * 
-	 * @param g
-	 *            the game - type Game
-	 * @return ArrayList of moves
-	 */
-	private ArrayList<Move> findPossibleMoves(Game g) {
-		ArrayList<Move> possibleMoves = new ArrayList<Move>();
-		ArrayList<Move> checkList = new ArrayList<Move>();
-		Point current = g.myTurn.pawn();
-
-		checkList.add(new Move(current.x() + 1, current.y(), MoveType.PAWN));
-		checkList.add(new Move(current.x() + 2, current.y(), MoveType.PAWN));
-		checkList.add(new Move(current.x(), current.y() + 1, MoveType.PAWN));
-		checkList.add(new Move(current.x(), current.y() + 2, MoveType.PAWN));
-		checkList.add(new Move(current.x() - 1, current.y(), MoveType.PAWN));
-		checkList.add(new Move(current.x() - 2, current.y(), MoveType.PAWN));
-		checkList.add(new Move(current.x(), current.y() - 1, MoveType.PAWN));
-		checkList.add(new Move(current.x(), current.y() - 2, MoveType.PAWN));
-		checkList
-				.add(new Move(current.x() - 1, current.y() - 1, MoveType.PAWN));
-		checkList
-				.add(new Move(current.x() + 1, current.y() - 1, MoveType.PAWN));
-		checkList
-				.add(new Move(current.x() - 1, current.y() + 1, MoveType.PAWN));
-		checkList
-				.add(new Move(current.x() + 1, current.y() + 1, MoveType.PAWN));
-		checkList
-				.add(new Move(current.x() - 1, current.y() + 1, MoveType.PAWN));
-
-		// add walls to checklist
-		if (g.myTurn().wallsLeft() > 0) {
-			for (int i = 1; i < 9; i++) {
-				for (int j = 1; j < 9; j++) {
-					checkList.add(new Move(j, i, MoveType.HORIZONTAL));
-					checkList.add(new Move(j, i, MoveType.VERTICAL));
-				}
-			}
-		}
-
-		for (int i = 0; i < checkList.size(); i++) {
-			if (g.isValid(checkList.get(i), g.myTurn())) {
-				possibleMoves.add(checkList.get(i));
-			}
-		}
-
-		return possibleMoves;
-	}
-
 }
\ No newline at end of file
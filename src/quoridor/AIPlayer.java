@@ -1,5 +1,11 @@
 package quoridor;
 
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import features.Feature;
+
 /**
  * AIPlayer extends Player and represents an AI Player, which will generate moves.
  * 
@@ -12,6 +18,9 @@ package quoridor;
  * <ul>
  * <li>Simply Overrides the type() function defined in the Player class.</li>
  * <li>Also has a level representing how smart its moves are going to be in the game.</li>
+ * <li>Keeps the transposition table of its searches from one move to the next.</li>
+ * <li>Has a search depth, or a time budget for each move, and a number of threads to search with, splitting the root moves or with Lazy SMP.</li>
+ * <li>Searches with alpha-beta or with a Monte Carlo tree search, whose node pool it keeps from one move to the next, the tree being grown again for every move.</li>
  * </ul>
  * 
  * 
@@ -23,6 +32,116 @@ public class AIPlayer extends Player {
 
 	public float[] weights;
 
+	/**
+	 * Memory budget of the transposition table, in bytes. 0 disables it.
+	 */
+	public int transpositionTableBytes = 16 << 20;
+
+	/**
+	 * Depth of the search of a move, in plies, when there is no time budget.
+	 */
+	public int searchDepth = 3;
+
+	/**
+	 * Time budget of a move, in milliseconds. 0 searches every move to
+	 * searchDepth, more searches deeper and deeper until the budget runs out.
+	 */
+	public long moveTimeMillis = 0;
+
+	/**
+	 * Number of threads searching a move. With more than 1, the moves at the
+	 * root of the search are split between the threads, see
+	 * ParallelRootSearch, or the threads search with Lazy SMP if lazySmp is
+	 * set. Splitting the root moves finds the move of a single thread, so it
+	 * needs transpositionTableBytes set to 0 and reductions off, see pool().
+	 */
+	public int threads = 1;
+
+	/**
+	 * With more than 1 thread, searches with Lazy SMP instead of splitting
+	 * the root moves: the other threads run the same iterative deepening as
+	 * helpers, and only share the transposition table, which it needs.
+	 */
+	public boolean lazySmp = false;
+
+	/**
+	 * Set to search late quiet walls one ply shallower first, see
+	 * AI.isReduced(). The root moves can't be split with reductions, the move
+	 * found would depend on the order the threads end in.
+	 */
+	public boolean reductions = true;
+
+	/**
+	 * With more than 1 thread, set to search every move again on one thread,
+	 * and report its nodes and time in the SearchStats of the move, with the
+	 * speedup of the threads. Each move then takes the time of both searches.
+	 */
+	public boolean measureSpeedup = false;
+
+	/**
+	 * Seed of the noise added to the heuristic, and of the playouts of the
+	 * Monte Carlo tree search. Two games between players with the same
+	 * seeds, searching to a depth or a number of playouts, are the same.
+	 */
+	public long noiseSeed = new Random().nextLong();
+
+	/**
+	 * The engines an AI player can search its moves with.
+	 */
+	public enum Engine {
+		ALPHA_BETA, MCTS
+	}
+
+	/**
+	 * The engine the moves are searched with: the alpha-beta search of AI,
+	 * or the Monte Carlo tree search of MCTS.
+	 */
+	public Engine engine = Engine.ALPHA_BETA;
+
+	/**
+	 * Playouts of a Monte Carlo tree search when there is no time budget.
+	 */
+	public int playouts = 10000;
+
+	/**
+	 * Memory budget of the tree of the Monte Carlo tree search, in bytes.
+	 */
+	public int nodePoolBytes = 16 << 20;
+
+	/**
+	 * Moves played without searching in the opening, null for none.
+	 */
+	public OpeningBook openingBook;
+
+	/**
+	 * Set to search while the opponent thinks, on the move it is predicted
+	 * to play, see Ponderer.
+	 */
+	public boolean ponder = false;
+
+	/**
+	 * Receives the statistics of every search of this player, as one JSON
+	 * line per move, see SearchStats. Null for none.
+	 */
+	public PrintStream searchStats;
+
+	// the answer the last search of this player expected, -1 for none
+	int ponderMove = -1;
+	// times the opponent played the predicted move, or another one
+	int ponderHits;
+	int ponderMisses;
+
+	// playouts run by the Monte Carlo tree searches of this player, and the
+	// time they took
+	long playoutsRun;
+	long playoutMillis;
+
+	TranspositionTable transpositionTable;
+	ForkJoinPool pool;
+	NodePool nodePool;
+	RaceSolver raceSolver;
+	CompiledEvaluator evaluator;
+
 	public AIPlayer(String name){
 		this.name = name;
 	}
@@ -32,6 +151,99 @@ public class AIPlayer extends Player {
 		this.weights = weights;
 	}
 
+	/**
+	 * The transposition table used by the searches of this player, created
+	 * the first time it is needed.
+	 * @return the transposition table of this player, or null if disabled.
+	 */
+	public TranspositionTable transpositionTable() {
+		if (transpositionTable == null && transpositionTableBytes > 0) {
+			transpositionTable = new TranspositionTable(transpositionTableBytes);
+		}
+		return transpositionTable;
+	}
+
+	/**
+	 * The node pool of the Monte Carlo tree searches of this player, created
+	 * the first time it is needed and emptied for the tree of every move.
+	 * @return the node pool of this player.
+	 */
+	public NodePool nodePool() {
+		if (nodePool == null) {
+			nodePool = new NodePool(nodePoolBytes);
+		}
+		return nodePool;
+	}
+
+	/**
+	 * The solver of the races of the searches of this player, created the
+	 * first time it is needed and kept while the walls don't change.
+	 * @return the race solver of this player.
+	 */
+	public RaceSolver raceSolver() {
+		if (raceSolver == null) {
+			raceSolver = new RaceSolver();
+		}
+		return raceSolver;
+	}
+
+	/**
+	 * The heuristic of the searches of this player, compiled for its weights
+	 * the first time it is needed, and again when the weights change.
+	 * @param features the features of the AI searching, from index 1 on.
+	 * @param firstWeight the index of the weight of the feature at index 1.
+	 * @return the compiled evaluator.
+	 */
+	synchronized CompiledEvaluator evaluator(Feature[] features, int firstWeight) {
+		if (evaluator == null
+				|| !evaluator.isCompiledFor(features, firstWeight, weights)) {
+			evaluator = new CompiledEvaluator(features, firstWeight, weights);
+		}
+		return evaluator;
+	}
+
+	/**
+	 * Remembers the answer a search of this player expects to its move, to
+	 * be pondered on.
+	 * @param principalVariation the principal variation of the search.
+	 */
+	void expectAnswer(int[] principalVariation) {
+		ponderMove = principalVariation.length > 1 ? principalVariation[1] : -1;
+	}
+
+	/**
+	 * The number of playouts the Monte Carlo tree searches of this player ran
+	 * per second, over all its moves.
+	 * @return the playouts per second, 0 if none were run.
+	 */
+	public float playoutsPerSecond() {
+		return playoutMillis == 0 ? 0 : playoutsRun * 1000f / playoutMillis;
+	}
+
+	/**
+	 * The threads used by the searches of this player, created the first time
+	 * they are needed.
+	 * @return a pool of as many threads as the player searches with.
+	 * @throws IllegalStateException if the player searches with Lazy SMP
+	 * without transposition table, or splits the root moves with one or with
+	 * reductions.
+	 */
+	public ForkJoinPool pool() {
+		if (lazySmp && transpositionTableBytes <= 0) {
+			throw new IllegalStateException(name
+					+ " searches with Lazy SMP without transposition table.");
+		}
+		if (!lazySmp && (transpositionTableBytes > 0 || reductions)) {
+			throw new IllegalStateException(name
+					+ " splits the root moves with a transposition table or"
+					+ " reductions, set lazySmp or turn them off.");
+		}
+		if (pool == null) {
+			pool = new ForkJoinPool(threads);
+		}
+		return pool;
+	}
+
 	@Override
 	public String type() {
 		return "AI";
@@ -0,0 +1,189 @@
+package quoridor;
+
+import java.util.Arrays;
+
+import features.ContextFeature;
+import features.EvaluationContext;
+import features.Feature;
+import features.LinearFeature;
+
+/**
+ * CompiledEvaluator is the heuristic of an AI, the weighted sum of its
+ * features, compiled once for the weights of an AIPlayer so that evaluating
+ * a leaf of the search does as little as possible.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Leaves out the features whose weight is 0, which the genetic
+ * algorithm of GameFactory gives to about one feature in five.</li>
+ * <li>Groups the features made of the same quantities, like the distances to
+ * the goals, so that each quantity is read and multiplied once.</li>
+ * <li>Evaluates a position with a loop over arrays of primitives, without
+ * calling the features that could be grouped.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The weights of the LinearFeatures are added up, by quantity of the
+ * EvaluationContext they are made of, into one coefficient per quantity. The
+ * quantities whose coefficient is 0 are left out.</li>
+ * <li>The other features are kept with their weight, and evaluated one by
+ * one after the quantities.</li>
+ * <li>An evaluator keeps a copy of the weights it was compiled for, so that
+ * AIPlayer.evaluator() compiles a new one when they change.</li>
+ * <li>The sum is the same as the one of the features, but for rounding.</li>
+ * </ul>
+ *
+ */
+
+public class CompiledEvaluator {
+
+	// what the evaluator was compiled for, see isCompiledFor()
+	final Class<?>[] featureClasses;
+	final int firstWeight;
+	final float[] weights;
+
+	// the quantities of the context and their coefficients
+	final float constant;
+	final int[] terms;
+	final float[] coefficients;
+	// the features that are not linear and their weights
+	final Feature[] others;
+	final float[] otherWeights;
+
+	/**
+	 * Compiles the weighted sum of features.
+	 *
+	 * @param features
+	 *            the features, from index 1 on like in AI.
+	 * @param firstWeight
+	 *            the index of the weight of the feature at index 1.
+	 * @param weights
+	 *            the weights.
+	 */
+	public CompiledEvaluator(Feature[] features, int firstWeight,
+			float[] weights) {
+		this.featureClasses = classes(features);
+		this.firstWeight = firstWeight;
+		this.weights = weights.clone();
+
+		float[] sums = new float[EvaluationContext.TERMS];
+		int otherCount = 0;
+		Feature[] others = new Feature[features.length];
+		float[] otherWeights = new float[features.length];
+		for (int i = 1; i < features.length; i++) {
+			float weight = weights[firstWeight + i - 1];
+			if (weight == 0) {
+				continue;
+			}
+			if (features[i] instanceof LinearFeature) {
+				((LinearFeature) features[i]).addCoefficients(weight, sums);
+			} else {
+				others[otherCount] = features[i];
+				otherWeights[otherCount] = weight;
+				otherCount++;
+			}
+		}
+		this.others = Arrays.copyOf(others, otherCount);
+		this.otherWeights = Arrays.copyOf(otherWeights, otherCount);
+
+		constant = sums[EvaluationContext.CONSTANT];
+		int termCount = 0;
+		for (int term = 0; term < sums.length; term++) {
+			if (term != EvaluationContext.CONSTANT && sums[term] != 0) {
+				termCount++;
+			}
+		}
+		terms = new int[termCount];
+		coefficients = new float[termCount];
+		termCount = 0;
+		for (int term = 0; term < sums.length; term++) {
+			if (term != EvaluationContext.CONSTANT && sums[term] != 0) {
+				terms[termCount] = term;
+				coefficients[termCount] = sums[term];
+				termCount++;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the position of a context.
+	 *
+	 * @param context
+	 *            the context, reset for the position and the player to
+	 *            evaluate for.
+	 * @return the score of the position, higher being better for the player.
+	 */
+	public float evaluate(EvaluationContext context) {
+		float score = constant;
+		for (int i = 0; i < terms.length; i++) {
+			score += coefficients[i] * context.term(terms[i]);
+		}
+		for (int i = 0; i < others.length; i++) {
+			score += otherWeights[i] * evaluate(others[i], context);
+		}
+		return score;
+	}
+
+	/**
+	 * Evaluates a feature in the position of a context.
+	 *
+	 * @param feature
+	 *            the feature, reading the context if it is a ContextFeature.
+	 * @param context
+	 *            the context.
+	 * @return the value of the feature.
+	 */
+	static float evaluate(Feature feature, EvaluationContext context) {
+		if (feature instanceof ContextFeature) {
+			return ((ContextFeature) feature).evaluate(context);
+		}
+		return feature.evaluate(context.game(), context.player());
+	}
+
+	/**
+	 * The number of quantities and features evaluated for a position, the
+	 * constant left out.
+	 *
+	 * @return the number of quantities and features.
+	 */
+	public int size() {
+		return terms.length + others.length;
+	}
+
+	/**
+	 * Checks if this evaluator computes the weighted sum of some features.
+	 *
+	 * @param features
+	 *            the features, from index 1 on.
+	 * @param firstWeight
+	 *            the index of the weight of the feature at index 1.
+	 * @param weights
+	 *            the weights, which may have changed since the evaluator was
+	 *            compiled.
+	 * @return true if the features are of the same classes and the weights
+	 *         the same.
+	 */
+	public boolean isCompiledFor(Feature[] features, int firstWeight,
+			float[] weights) {
+		return this.firstWeight == firstWeight
+				&& Arrays.equals(this.weights, weights)
+				&& Arrays.equals(featureClasses, classes(features));
+	}
+
+	private static Class<?>[] classes(Feature[] features) {
+		Class<?>[] classes = new Class<?>[features.length];
+		for (int i = 1; i < features.length; i++) {
+			classes[i] = features[i].getClass();
+		}
+		return classes;
+	}
+
+	@Override
+	public String toString() {
+		return "constant " + constant + ", terms " + Arrays.toString(terms)
+				+ " " + Arrays.toString(coefficients) + ", "
+				+ others.length + " other features";
+	}
+
+}
@@ -0,0 +1,308 @@
+package quoridor;
+
+import java.util.Arrays;
+
+import quoridor.Move.MoveType;
+
+/**
+ * DistanceField knows, for every square of the board, how many moves a pawn
+ * needs to reach a goal row from it.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Gives the length of the shortest path to the goal row from any square
+ * with an array lookup.</li>
+ * <li>Is repaired incrementally when a wall is placed, and restored when it is
+ * removed.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The field is first computed with a breadth first search starting from
+ * all the squares of the goal row at once.</li>
+ * <li>A wall can only make distances longer. When one is placed, the squares
+ * that lost every neighbour one step closer to the goal are found starting
+ * from the blocked edges, and only those get new distances, settled closest
+ * first from the squares around them.</li>
+ * <li>The old distances of the squares that changed are logged, so that
+ * removing the last wall placed restores the field exactly.</li>
+ * </ul>
+ *
+ */
+
+public class DistanceField {
+
+	// distance of the squares that can't reach the goal row
+	static final int UNREACHABLE = 1000;
+
+	final WallBoard walls;
+	final int goalRow;
+	final int[] distances = new int[81];
+
+	// squares to check while looking for the squares to repair
+	final int[] work = new int[4 * 81 + 4];
+	// squares being repaired
+	final int[] affected = new int[81];
+	long affectedLo;
+	long affectedHi;
+
+	// old distances of the squares changed by each wall, to restore them
+	int[] logSquares = new int[8 * 81];
+	int[] logDistances = new int[8 * 81];
+	int logSize = 0;
+	int[] logStarts = new int[32];
+	int wallsPlaced = 0;
+
+	/**
+	 * Creates and computes the distance field of a goal row.
+	 *
+	 * @param walls
+	 *            the walls paths go around.
+	 * @param goalRow
+	 *            the number coordinate of the row to reach.
+	 */
+	public DistanceField(WallBoard walls, int goalRow) {
+		this.walls = walls;
+		this.goalRow = goalRow;
+		compute();
+	}
+
+	/**
+	 * Computes the whole field from scratch and forgets the logged walls.
+	 */
+	public void compute() {
+		Arrays.fill(distances, UNREACHABLE);
+		int[] queue = affected;
+		int head = 0;
+		int tail = 0;
+		for (int x = 0; x < 9; x++) {
+			int s = WallBoard.square(x, goalRow);
+			distances[s] = 0;
+			queue[tail++] = s;
+		}
+		while (head < tail) {
+			int s = queue[head++];
+			for (int k = 0; k < 4; k++) {
+				int n = walls.neighbour(s, k);
+				if (n >= 0 && distances[n] == UNREACHABLE) {
+					distances[n] = distances[s] + 1;
+					queue[tail++] = n;
+				}
+			}
+		}
+		logSize = 0;
+		wallsPlaced = 0;
+	}
+
+	/**
+	 * The number of moves needed to reach the goal row from a square.
+	 *
+	 * @param square
+	 *            the index of the square, see WallBoard.square().
+	 * @return the length of the shortest path, or -1 if the goal row can't be
+	 *         reached.
+	 */
+	public int distance(int square) {
+		int d = distances[square];
+		return d == UNREACHABLE ? -1 : d;
+	}
+
+	/**
+	 * Marks the edges of a shortest path to the goal row, going down the field
+	 * from a square. The edges are stored like the walls of WallBoard block
+	 * them: on the square with the lower index.
+	 * 
+	 * @param square
+	 *            the square the path starts from.
+	 * @param edges
+	 *            receives the masks of the edges: the low and high bits of the
+	 *            edges going up, then of the edges going right. If the goal row
+	 *            can't be reached, every edge is marked.
+	 */
+	public void pathEdges(int square, long[] edges) {
+		long hLo = 0;
+		long hHi = 0;
+		long vLo = 0;
+		long vHi = 0;
+		if (distances[square] >= UNREACHABLE) {
+			hLo = vLo = WallBoard.BOARD_LO;
+			hHi = vHi = WallBoard.BOARD_HI;
+		}
+		int s = square;
+		while (distances[s] > 0 && distances[s] < UNREACHABLE) {
+			for (int k = 0; k < 4; k++) {
+				int n = walls.neighbour(s, k);
+				if (n >= 0 && distances[n] == distances[s] - 1) {
+					int edge = k == 0 || k == 3 ? s : n;
+					long bit = 1L << (edge < WallBoard.LOW_SQUARES ? edge
+							: edge - WallBoard.LOW_SQUARES);
+					boolean low = edge < WallBoard.LOW_SQUARES;
+					if (k < 2) {
+						if (low) {
+							vLo |= bit;
+						} else {
+							vHi |= bit;
+						}
+					} else {
+						if (low) {
+							hLo |= bit;
+						} else {
+							hHi |= bit;
+						}
+					}
+					s = n;
+					break;
+				}
+			}
+		}
+		edges[0] = hLo;
+		edges[1] = hHi;
+		edges[2] = vLo;
+		edges[3] = vHi;
+	}
+
+	/**
+	 * Repairs the field after a wall has been placed on the board.
+	 *
+	 * @param x
+	 *            the letter coordinate of the wall.
+	 * @param y
+	 *            the number coordinate of the wall.
+	 * @param dir
+	 *            the direction of the wall.
+	 */
+	public void wallPlaced(int x, int y, MoveType dir) {
+		if (wallsPlaced == logStarts.length) {
+			logStarts = Arrays.copyOf(logStarts, wallsPlaced * 2);
+		}
+		if (logSize + 81 > logSquares.length) {
+			logSquares = Arrays.copyOf(logSquares, logSquares.length * 2);
+			logDistances = Arrays.copyOf(logDistances, logDistances.length * 2);
+		}
+		logStarts[wallsPlaced++] = logSize;
+
+		// the squares on the far side of a blocked edge may lose their path
+		int top = 0;
+		if (dir == MoveType.HORIZONTAL) {
+			int square = WallBoard.square(x, y - 1);
+			top = blockedEdge(square, square + 9, top);
+			top = blockedEdge(square + 1, square + 10, top);
+		} else {
+			int square = WallBoard.square(x - 1, y);
+			top = blockedEdge(square, square + 1, top);
+			top = blockedEdge(square + 9, square + 10, top);
+		}
+
+		// find the squares that have no neighbour one step closer any more
+		affectedLo = 0;
+		affectedHi = 0;
+		int count = 0;
+		while (top > 0) {
+			int s = work[--top];
+			if (isAffected(s) || isSupported(s)) {
+				continue;
+			}
+			setAffected(s);
+			affected[count++] = s;
+			logSquares[logSize] = s;
+			logDistances[logSize++] = distances[s];
+			for (int k = 0; k < 4; k++) {
+				int n = walls.neighbour(s, k);
+				if (n >= 0 && distances[n] == distances[s] + 1) {
+					work[top++] = n;
+				}
+			}
+		}
+
+		// their new distances come from the squares around them
+		for (int i = 0; i < count; i++) {
+			int s = affected[i];
+			int best = UNREACHABLE;
+			for (int k = 0; k < 4; k++) {
+				int n = walls.neighbour(s, k);
+				if (n >= 0 && !isAffected(n) && distances[n] + 1 < best) {
+					best = distances[n] + 1;
+				}
+			}
+			distances[s] = best;
+		}
+		// and are settled closest first
+		while (count > 0) {
+			int closest = 0;
+			for (int i = 1; i < count; i++) {
+				if (distances[affected[i]] < distances[affected[closest]]) {
+					closest = i;
+				}
+			}
+			int s = affected[closest];
+			affected[closest] = affected[--count];
+			if (distances[s] >= UNREACHABLE) {
+				break;
+			}
+			for (int k = 0; k < 4; k++) {
+				int n = walls.neighbour(s, k);
+				if (n >= 0 && distances[s] + 1 < distances[n]) {
+					distances[n] = distances[s] + 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Restores the field as it was before the last wall was placed.
+	 */
+	public void wallRemoved() {
+		int start = logStarts[--wallsPlaced];
+		while (logSize > start) {
+			logSize--;
+			distances[logSquares[logSize]] = logDistances[logSize];
+		}
+	}
+
+	/**
+	 * Looks at an edge that has just been blocked between two squares, and
+	 * adds the farther of the two to the work list if its path may have gone
+	 * through the edge.
+	 *
+	 * @return the new top of the work list.
+	 */
+	private int blockedEdge(int square, int next, int top) {
+		if (distances[square] == distances[next] + 1) {
+			work[top++] = square;
+		} else if (distances[next] == distances[square] + 1) {
+			work[top++] = next;
+		}
+		return top;
+	}
+
+	/**
+	 * Checks if a square still has a neighbour one step closer to the goal
+	 * row, which has not lost its own path.
+	 */
+	private boolean isSupported(int square) {
+		if (distances[square] == 0) {
+			return true;
+		}
+		for (int k = 0; k < 4; k++) {
+			int n = walls.neighbour(square, k);
+			if (n >= 0 && distances[n] == distances[square] - 1
+					&& !isAffected(n)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isAffected(int square) {
+		return WallBoard.test(affectedLo, affectedHi, square);
+	}
+
+	private void setAffected(int square) {
+		if (square < WallBoard.LOW_SQUARES) {
+			affectedLo |= 1L << square;
+		} else {
+			affectedHi |= 1L << (square - WallBoard.LOW_SQUARES);
+		}
+	}
+
+}
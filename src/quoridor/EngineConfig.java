@@ -0,0 +1,91 @@
+package quoridor;
+
+import java.util.Random;
+
+/**
+ * EngineConfig tells how an engine plays in a match run by MatchRunner: its
+ * weights, the search it uses and how deep or long it searches.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Describes an engine without creating any of its state, so that the
+ * same configuration can play many matches.</li>
+ * <li>Has the search settings of AIPlayer, with the same defaults. Pondering,
+ * the statistics stream and the speedup measure are left out: a match has
+ * no human to ponder on and prints nothing.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>newPlayer() creates an AIPlayer with the settings, whose transposition
+ * table, race solver and so on are created when the match needs them.</li>
+ * </ul>
+ *
+ */
+
+public class EngineConfig {
+
+	// the settings of an AIPlayer nobody changed
+	private static final AIPlayer DEFAULTS = new AIPlayer("defaults");
+
+	public String name;
+	public float[] weights;
+	public AIPlayer.Engine engine = DEFAULTS.engine;
+	public int searchDepth = DEFAULTS.searchDepth;
+	public long moveTimeMillis = DEFAULTS.moveTimeMillis;
+	public int threads = DEFAULTS.threads;
+	public boolean lazySmp = DEFAULTS.lazySmp;
+	public boolean reductions = DEFAULTS.reductions;
+	public int transpositionTableBytes = DEFAULTS.transpositionTableBytes;
+	public int playouts = DEFAULTS.playouts;
+	public int nodePoolBytes = DEFAULTS.nodePoolBytes;
+	public OpeningBook openingBook;
+
+	/**
+	 * Seed of the noise of the engine, see AIPlayer.noiseSeed. Two matches
+	 * between the same configurations searching to a depth are the same.
+	 */
+	public long noiseSeed = new Random().nextLong();
+
+	/**
+	 * Creates a configuration with the default settings of AIPlayer.
+	 *
+	 * @param name
+	 *            the name of the engine.
+	 * @param weights
+	 *            the weights of the features of its heuristic, see AI.
+	 */
+	public EngineConfig(String name, float[] weights) {
+		this.name = name;
+		this.weights = weights;
+	}
+
+	/**
+	 * Creates a player with the settings of this configuration.
+	 *
+	 * @return a new AIPlayer, with none of the state of another match.
+	 */
+	public AIPlayer newPlayer() {
+		AIPlayer player = new AIPlayer(name, weights);
+		player.engine = engine;
+		player.searchDepth = searchDepth;
+		player.moveTimeMillis = moveTimeMillis;
+		player.threads = threads;
+		player.lazySmp = lazySmp;
+		player.reductions = reductions;
+		player.transpositionTableBytes = transpositionTableBytes;
+		player.playouts = playouts;
+		player.nodePoolBytes = nodePoolBytes;
+		player.openingBook = openingBook;
+		player.noiseSeed = noiseSeed;
+		return player;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + engine + ", "
+				+ (moveTimeMillis > 0 ? moveTimeMillis + " ms" : "depth "
+						+ searchDepth) + ")";
+	}
+
+}
@@ -5,9 +5,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.PriorityQueue;
 import java.util.Scanner;
 
 import quoridor.Command.CommandType;
@@ -52,6 +51,12 @@ import util.Two;
 
 public class Game {
 
+	/**
+	 * The most moves a position can have: a few pawn moves and every wall
+	 * slot. A buffer of this size always fits generateMoves().
+	 */
+	public static final int MAX_MOVES = 8 + 128;
+
 	/**
 	 * Players playing the Game
 	 */
@@ -65,6 +70,54 @@ public class Game {
 
 	// List of the walls that are placed on the board
 	LinkedList<Wall> walls = new LinkedList<Wall>();
+	// Bitboards of the walls that are placed on the board, used for queries
+	WallBoard wallBoard = new WallBoard();
+	// Shortest paths around those walls
+	PathFinder pathFinder = new PathFinder(wallBoard);
+	// Distances to the goal of each player from every square, kept up to date
+	// as walls are placed and removed
+	DistanceField[] distanceFields;
+	// Wall slots where a wall can be placed, kept until the walls change
+	LegalWalls legalWalls;
+
+	// Zobrist hash of the current position, see Zobrist
+	long hash;
+
+	/**
+	 * Set to end play() as soon as the winner of the race is known, see
+	 * raceWinner(), instead of playing the race out.
+	 */
+	public boolean adjudicateRaces = false;
+
+	/**
+	 * Set to end play() as a draw once the same position has come up three
+	 * times with the same player to move.
+	 */
+	public boolean adjudicateRepetitions = false;
+
+	/**
+	 * The number of plies after which play() ends as a draw, 0 for none.
+	 */
+	public int maxPlies = 0;
+
+	/**
+	 * Set to play() without printing anything, for games between AI players
+	 * nobody watches.
+	 */
+	public boolean quiet = false;
+
+	// Hash of the position after each move of the list of moves, the
+	// starting position first, see repetitions()
+	long[] positionHashes = new long[64];
+	// How the last call to play() ended, see end()
+	GameEnd end;
+	// Outcome of the race for the walls on the board, see raceWinner()
+	RaceSolver raceSolver;
+
+	// Moves made with makeMove() and the pawns they replaced, to unmake them
+	int[] madeMoves = new int[32];
+	Point[] replacedPawns = new Point[32];
+	int made = 0;
 	// List of the moves that have been made on the board
 	LinkedList<Move> moves = new LinkedList<Move>();
 
@@ -98,6 +151,68 @@ public class Game {
 	 */
 	public void changeTurn() {
 		myTurn = players.other(myTurn);
+		hash ^= Zobrist.SECOND_PLAYER_TO_MOVE;
+	}
+
+	/**
+	 * The Zobrist hash of the current position. It covers both pawns, every
+	 * wall placed, the number of walls left of each player and the player to
+	 * move, and is kept up to date by every move.
+	 * 
+	 * @return the 64 bit hash of the current position.
+	 */
+	public long hash() {
+		return hash;
+	}
+
+	/**
+	 * Computes the Zobrist hash of the current position from scratch.
+	 * 
+	 * @return the 64 bit hash of the current position.
+	 */
+	public long computeHash() {
+		long h = 0;
+		h ^= Zobrist.pawn(0, players._1.pawn)
+				^ Zobrist.wallsLeft(0, players._1.wall);
+		h ^= Zobrist.pawn(1, players._2.pawn)
+				^ Zobrist.wallsLeft(1, players._2.wall);
+		for (long bits = wallBoard.hWalls; bits != 0; bits &= bits - 1) {
+			h ^= Zobrist.HORIZONTAL[Long.numberOfTrailingZeros(bits)];
+		}
+		for (long bits = wallBoard.vWalls; bits != 0; bits &= bits - 1) {
+			h ^= Zobrist.VERTICAL[Long.numberOfTrailingZeros(bits)];
+		}
+		if (myTurn == players._2) {
+			h ^= Zobrist.SECOND_PLAYER_TO_MOVE;
+		}
+		return h;
+	}
+
+	/**
+	 * The index of a player in the game.
+	 * 
+	 * @return 0 for the first player, 1 for the second one.
+	 */
+	int index(Player p) {
+		return p == players._1 ? 0 : 1;
+	}
+
+	/**
+	 * Sets the pawn of a player, keeping the hash up to date.
+	 */
+	private void setPawn(Player p, Point pawn) {
+		int i = index(p);
+		hash ^= Zobrist.pawn(i, p.pawn) ^ Zobrist.pawn(i, pawn);
+		p.pawn = pawn;
+	}
+
+	/**
+	 * Sets the number of walls left of a player, keeping the hash up to date.
+	 */
+	private void setWallsLeft(Player p, int wallsLeft) {
+		int i = index(p);
+		hash ^= Zobrist.wallsLeft(i, p.wall) ^ Zobrist.wallsLeft(i, wallsLeft);
+		p.wall = wallsLeft;
 	}
 
 	/**
@@ -113,7 +228,13 @@ public class Game {
 		players._2.positions.add(p2);
 		players._1.setGoal(1);
 		players._2.setGoal(9);
+		distanceFields = new DistanceField[] {
+				new DistanceField(wallBoard, players._1.goal()),
+				new DistanceField(wallBoard, players._2.goal()) };
+		legalWalls = new LegalWalls(wallBoard, distanceFields);
 		myTurn = players._1();
+		hash = computeHash();
+		positionHashes[0] = hash;
 
 		if (moves != null) {
 			for (Move move : moves) {
@@ -155,23 +276,7 @@ public class Game {
 	 *         false otherwise.
 	 */
 	public boolean isWallAt(int x, int y, MoveType dir) {
-		boolean returnValue = false;
-
-		for (Wall myWall : walls) {
-
-			if (dir.equals(MoveType.HORIZONTAL)) {
-				if (dir.equals(myWall.dir())
-						&& (myWall.pos().x() == x || myWall.pos().x() == x - 1)
-						&& myWall.pos().y() == y)
-					returnValue = true;
-			} else if (dir.equals(MoveType.VERTICAL)) {
-				if (dir.equals(myWall.dir()) && myWall.pos().x() == x
-						&& (myWall.pos().y() == y || myWall.pos().y() == y - 1))
-					returnValue = true;
-			}
-
-		}
-		return returnValue;
+		return wallBoard.isWallAt(x, y, dir);
 	}
 
 	/**
@@ -197,6 +302,100 @@ public class Game {
 		}
 	}
 
+	/**
+	 * The player who wins the game with the best play, once it is a race
+	 * whose outcome is known, see RaceSolver.
+	 * 
+	 * @return The winner of the race, or null if it is not known.
+	 */
+	public Player raceWinner() {
+		if (isOver()) {
+			return winner();
+		}
+		if (players._1.wallsLeft() > 0 && players._2.wallsLeft() > 0) {
+			return null;
+		}
+		if (raceSolver == null) {
+			raceSolver = new RaceSolver();
+		}
+		int race = raceSolver.solve(this);
+		if (race == RaceSolver.UNKNOWN) {
+			return null;
+		}
+		return race > 0 ? myTurn : players.other(myTurn);
+	}
+
+	/**
+	 * The number of times the current position came up in the game, with the
+	 * same player to move, the current one included. Undone moves don't
+	 * count.
+	 * 
+	 * @return the number of times, at least 1.
+	 */
+	public int repetitions() {
+		int count = 0;
+		for (int ply = moves.size(); ply >= 0; ply -= 2) {
+			if (positionHashes[ply] == hash) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if the game ends after the last move: if it is over, or if it
+	 * is to be adjudicated with the rules set by adjudicateRaces,
+	 * adjudicateRepetitions and maxPlies.
+	 * 
+	 * @return how the game ends, or null if it goes on.
+	 */
+	public GameEnd adjudicate() {
+		if (isOver()) {
+			return GameEnd.GOAL;
+		}
+		if (adjudicateRaces && raceWinner() != null) {
+			return GameEnd.RACE;
+		}
+		if (adjudicateRepetitions && repetitions() >= 3) {
+			return GameEnd.REPETITION;
+		}
+		if (maxPlies > 0 && moves.size() >= maxPlies) {
+			return GameEnd.MAX_PLIES;
+		}
+		return null;
+	}
+
+	/**
+	 * The winner of a game ending in a way, see adjudicate(). A player who
+	 * has no valid move to play loses, see GameEnd.NO_MOVE.
+	 * 
+	 * @param end
+	 *            how the game ends.
+	 * @return the winner, or null for a draw.
+	 */
+	public Player winner(GameEnd end) {
+		if (end == GameEnd.GOAL) {
+			return winner();
+		}
+		if (end == GameEnd.RACE) {
+			return raceWinner();
+		}
+		if (end == GameEnd.NO_MOVE) {
+			return players.other(myTurn());
+		}
+		return null;
+	}
+
+	/**
+	 * How the last call to play() ended.
+	 * 
+	 * @return how the game ended, or null if it was left before the end or
+	 *         not played.
+	 */
+	public GameEnd end() {
+		return end;
+	}
+
 	/**
 	 * The Loser of the Game.
 	 * 
@@ -224,10 +423,14 @@ public class Game {
 			p.positions.add(move.coord());
 		} else {
 			placeWall(move);
-			p.deductWall();
+			setWallsLeft(p, p.wallsLeft() - 1);
 		}
 		changeTurn();
 		moves.add(move);
+		if (moves.size() == positionHashes.length) {
+			positionHashes = Arrays.copyOf(positionHashes, moves.size() * 2);
+		}
+		positionHashes[moves.size()] = hash;
 	}
 
 	/**
@@ -239,7 +442,7 @@ public class Game {
 	 *            The player making the move.
 	 */
 	public void placePawn(Move move, Player p) {
-		p.pawn = new Point(move.coord().x(), move.coord().y());
+		setPawn(p, new Point(move.coord().x(), move.coord().y()));
 	}
 
 	/**
@@ -250,6 +453,116 @@ public class Game {
 	 */
 	public void placeWall(Move move) {
 		walls.add(new Wall(move.coord(), move.direction()));
+		addWall(move.coord().x(), move.coord().y(), move.direction());
+	}
+
+	/**
+	 * Removes the last wall that has been placed.
+	 */
+	private void removeLastWall() {
+		Wall w = walls.removeLast();
+		takeWall(w.pos().x(), w.pos().y(), w.dir());
+	}
+
+	/**
+	 * Stores a wall on the board, and updates the hash and the distance fields.
+	 * Does nothing if the wall is outside the board.
+	 */
+	private void addWall(int x, int y, MoveType dir) {
+		if (wallBoard.place(x, y, dir)) {
+			hash ^= Zobrist.wall(x, y, dir);
+			distanceFields[0].wallPlaced(x, y, dir);
+			distanceFields[1].wallPlaced(x, y, dir);
+		}
+	}
+
+	/**
+	 * Takes the last wall stored with addWall() off the board, and restores the
+	 * hash and the distance fields.
+	 */
+	private void takeWall(int x, int y, MoveType dir) {
+		if (wallBoard.hasWall(x, y, dir)) {
+			wallBoard.remove(x, y, dir);
+			hash ^= Zobrist.wall(x, y, dir);
+			distanceFields[0].wallRemoved();
+			distanceFields[1].wallRemoved();
+		}
+	}
+
+	/**
+	 * Takes back the last move of the list of moves, which was made by the
+	 * player playing this turn.
+	 */
+	private void takeBackLastMove() {
+		Move last = moves.removeLast();
+		if (last.direction().equals(MoveType.PAWN)) {
+			myTurn().positions.removeLast();
+			setPawn(myTurn(), myTurn().positions.getLast());
+		} else {
+			removeLastWall();
+			setWallsLeft(myTurn(), myTurn().wallsLeft() + 1);
+		}
+	}
+
+	/**
+	 * Makes a move for the player playing this turn, without allocating
+	 * anything, so that it can be unmade with unmakeMove(). Used by the AI to
+	 * search a single game in place. The move is not added to the list of
+	 * moves and walls, so every move made this way has to be unmade before the
+	 * game goes on with move() or undo().
+	 * 
+	 * @param code
+	 *            the code of the move to be made, see MoveCode, assumed to be
+	 *            valid.
+	 */
+	public void makeMove(int code) {
+		Player p = myTurn;
+		if (made == madeMoves.length) {
+			madeMoves = Arrays.copyOf(madeMoves, made * 2);
+			replacedPawns = Arrays.copyOf(replacedPawns, made * 2);
+		}
+		madeMoves[made] = code;
+		replacedPawns[made] = p.pawn;
+		made++;
+
+		Move move = MoveCode.toMove(code);
+		if (MoveCode.isWall(code)) {
+			addWall(move.coord().x(), move.coord().y(), move.direction());
+			setWallsLeft(p, p.wall - 1);
+		} else {
+			setPawn(p, move.coord());
+		}
+		changeTurn();
+	}
+
+	/**
+	 * Makes a move for the player playing this turn, see makeMove(int).
+	 * 
+	 * @param move
+	 *            the move to be made, assumed to be valid.
+	 */
+	public void makeMove(Move move) {
+		makeMove(MoveCode.fromMove(move));
+	}
+
+	/**
+	 * Unmakes the last move made with makeMove(), restoring the pawn, the
+	 * walls, the number of walls left and the turn exactly.
+	 */
+	public void unmakeMove() {
+		made--;
+		int code = madeMoves[made];
+		Player p = players.other(myTurn);
+
+		if (MoveCode.isWall(code)) {
+			Move move = MoveCode.toMove(code);
+			takeWall(move.coord().x(), move.coord().y(), move.direction());
+			setWallsLeft(p, p.wall + 1);
+		} else {
+			setPawn(p, replacedPawns[made]);
+		}
+		replacedPawns[made] = null;
+		changeTurn();
 	}
 
 	/**
@@ -262,36 +575,12 @@ public class Game {
 		if (moves.size() > 0) {
 			if (players.other(myTurn()).type().equals("AI")) {
 				changeTurn();
-				if (moves.getLast().direction().equals(MoveType.PAWN)) {
-					myTurn().positions.removeLast();
-					myTurn().pawn = myTurn().positions.getLast();
-					moves.removeLast();
-				} else {
-					walls.removeLast();
-					myTurn().wall++;
-					moves.removeLast();
-				}
+				takeBackLastMove();
 				changeTurn();
-				if (moves.getLast().direction().equals(MoveType.PAWN)) {
-					myTurn().positions.removeLast();
-					myTurn().pawn = myTurn().positions.getLast();
-					moves.removeLast();
-				} else {
-					walls.removeLast();
-					myTurn().wall++;
-					moves.removeLast();
-				}
+				takeBackLastMove();
 			} else {
 				changeTurn();
-				if (moves.getLast().direction().equals(MoveType.PAWN)) {
-					myTurn().positions.removeLast();
-					myTurn().pawn = myTurn().positions.getLast();
-					moves.removeLast();
-				} else {
-					walls.removeLast();
-					myTurn().wall++;
-					moves.removeLast();
-				}
+				takeBackLastMove();
 			}
 			display();
 			System.out.println("Make a move " + myTurn().name + ": ");
@@ -314,21 +603,57 @@ public class Game {
 
 	/**
 	 * Plays the Game. With a !isOver() loop. keeps asking for prompts for now
-	 * and displaying. Soon will be AI and stuff.
+	 * and displaying. Soon will be AI and stuff. The game also ends when it
+	 * is adjudicated, see adjudicate(), and end() then tells why.
+	 * 
+	 * @return the name of the winner, or null for a draw or if the game was
+	 *         left.
 	 */
 	public String play() {
 
 		//display();
 		//System.out.println("Make a move " + myTurn().name + ": ");
 		int turns = 0;
-		while (!isOver()) {
+		end = null;
+		GameEnd ending = adjudicate();
+		// the move of the AI found while pondering on the last human move
+		Move pondered = null;
+		while (ending == null) {
 			turns++;
 			Move move;
 			if (myTurn().type().equals("AI")) {
-				AI ai = new AI(this);
-				move = ai.createMove();
+				if (pondered != null) {
+					move = pondered;
+					pondered = null;
+				} else if (((AIPlayer) myTurn()).engine == AIPlayer.Engine.MCTS) {
+					MCTS mcts = new MCTS(this);
+					move = mcts.createMove();
+				} else {
+					AI ai = new AI(this);
+					move = ai.createMove();
+					((AIPlayer) myTurn()).expectAnswer(ai.principalVariation());
+					if (((AIPlayer) myTurn()).searchStats != null) {
+						((AIPlayer) myTurn()).searchStats.println(ai.stats()
+								.toJson());
+					}
+				}
+				if (move == null) {
+					// the AI has no move, and loses like in a playout
+					ending = GameEnd.NO_MOVE;
+					break;
+				}
 			} else {
-				move = getInput();
+				// the AI searches while the human thinks, see Ponderer
+				Ponderer ponderer = Ponderer.start(this);
+				move = null;
+				try {
+					move = getInput();
+				} finally {
+					if (ponderer != null) {
+						pondered = ponderer.finish(move != null
+								&& isValid(move, myTurn()) ? move : null);
+					}
+				}
 				if (move == null)
 					return null;
 			}
@@ -341,14 +666,52 @@ public class Game {
 //				else
 //					System.out.println(myTurn().name + "(" + myTurn().level()
 //							+ ")" + " is making a move...");
-			} else {
+			} else if (!quiet) {
 				System.out.println("Invalid move noob, try again: ");
 			}
+			ending = adjudicate();
+
+		}
 
+		end = ending;
+		Player winner = winner(ending);
+		if (!quiet) {
+			System.out.println("GG. "
+					+ (winner != null ? "Winner is " + winner.name : "Draw")
+					+ " after " + turns + ending.description + ".");
+			printPlayouts();
+			printPondering();
 		}
+		return winner != null ? winner.name : null;
+	}
 
-		System.out.println("GG. Winner is " + winner().name + " after " + turns + ".");
-		return winner().name;
+	/**
+	 * Prints how often the AI players predicted the move they pondered on.
+	 */
+	private void printPondering() {
+		for (Player p : new Player[] { players._1, players._2 }) {
+			if (p instanceof AIPlayer && ((AIPlayer) p).ponder) {
+				AIPlayer ai = (AIPlayer) p;
+				System.out.println(p.name() + " pondered on the right move "
+						+ ai.ponderHits + " times out of "
+						+ (ai.ponderHits + ai.ponderMisses) + ".");
+			}
+		}
+	}
+
+	/**
+	 * Prints how fast the Monte Carlo tree searches of the AI players ran
+	 * their playouts.
+	 */
+	private void printPlayouts() {
+		for (Player p : new Player[] { players._1, players._2 }) {
+			if (p instanceof AIPlayer && ((AIPlayer) p).playoutsRun > 0) {
+				System.out.println(p.name() + "'s playouts: "
+						+ ((AIPlayer) p).playoutsRun + ", "
+						+ Math.round(((AIPlayer) p).playoutsPerSecond())
+						+ " per second");
+			}
+		}
 	}
 
 	/**
@@ -588,9 +951,9 @@ public class Game {
 	 */
 	public boolean isValidWallPlace(Move move, Player p) {
 		if (p.wallsLeft() > 0 && !move.direction().equals(MoveType.PAWN)
-				&& !isCrossing(new Wall(move.coord(), move.direction()))) {
-			if (isValidPath(new Wall(move.coord(), move.direction()))) {
-				// System.out.println("ValidPath");
+				&& isInBoard(move)) {
+			Wall w = new Wall(move.coord(), move.direction());
+			if (!isCrossing(w) && isValidPath(w)) {
 				return true;
 			}
 		}
@@ -785,27 +1148,7 @@ public class Game {
 	 * @return true if a wall is crossing or on top of another, false if not
 	 */
 	public boolean isCrossing(Wall w) {
-
-		if (w.dir().equals(MoveType.VERTICAL)) {
-			if ((isWallAt(w.pos().x() - 1, w.pos().y() + 1, MoveType.HORIZONTAL) && isWallAt(
-					w.pos().x(), w.pos().y() + 1, MoveType.HORIZONTAL))
-					|| (isWallAt(w.pos().x(), w.pos().y(), MoveType.VERTICAL) || isWallAt(
-							w.pos().x(), w.pos().y() + 1, MoveType.VERTICAL))) {
-				return true;
-			} else {
-				return false;
-			}
-		} else if (w.dir().equals(MoveType.HORIZONTAL)) {
-			if ((isWallAt(w.pos().x() + 1, w.pos().y() - 1, MoveType.VERTICAL) && isWallAt(
-					w.pos().x() + 1, w.pos().y(), MoveType.VERTICAL))
-					|| (isWallAt(w.pos().x(), w.pos().y(), MoveType.HORIZONTAL) || isWallAt(
-							w.pos().x() + 1, w.pos().y(), MoveType.HORIZONTAL))) {
-				return true;
-			} else {
-				return false;
-			}
-		}
-		return false;
+		return wallBoard.isCrossing(w.pos().x(), w.pos().y(), w.dir());
 	}
 
 	/**
@@ -828,7 +1171,8 @@ public class Game {
 
 	/**
 	 * Makes sure the placement of a wall does not prevent a player from
-	 * reaching its goal (anti-stuck).
+	 * reaching its goal (anti-stuck). The wall is placed on the bitboards for
+	 * the time of a flood fill from each pawn.
 	 * 
 	 * @param w
 	 *            the wall to be checked for placement validity
@@ -836,168 +1180,238 @@ public class Game {
 	 */
 	public boolean isValidPath(Wall w) {
 		boolean valid;
-		walls.add(w);
-		if ((shortestPath(players._1) != null)
-				&& (shortestPath(players._2) != null)) {
+		boolean placed = !wallBoard.hasWall(w.pos().x(), w.pos().y(), w.dir())
+				&& wallBoard.place(w.pos().x(), w.pos().y(), w.dir());
+		if (canReachGoal(players._1) && canReachGoal(players._2)) {
 			valid = true;
 		} else {
 			valid = false;
 		}
-		walls.remove(w);
+		if (placed) {
+			wallBoard.remove(w.pos().x(), w.pos().y(), w.dir());
+		}
 		return valid;
 	}
 
 	/**
-	 * Computes the shortest path for a player to reach the goal as a list of
-	 * moves.
+	 * The horizontal wall slots where the player to move can place a wall, all
+	 * found in one call. A slot is legal exactly when isValidWallPlace()
+	 * accepts the wall. The result is kept until a wall is placed or removed,
+	 * or a pawn moves.
 	 * 
-	 * @param player
-	 *            for which shortest path to win is computed
-	 * @return shortest list of moves to win
+	 * @return the mask of the legal slots, with the bits of WallBoard.slot(),
+	 *         0 if the player has no wall left
 	 */
-	public LinkedList<Move> shortestPath(Player player) {
-		Comparator<WeightedMove> comparator = new WeightedMoveComparator();
-		PriorityQueue<WeightedMove> open = new PriorityQueue<WeightedMove>(81,
-				comparator);
-		LinkedList<WeightedMove> closed = new LinkedList<WeightedMove>();
-
-		WeightedMove current = null;
-		WeightedMove next = null;
-
-		Player tempPlayer = new Human(null);
-		tempPlayer.setGoal(player.goal);
-		Point tempPawn;
-
-		int gcost = 0;
-		current = new WeightedMove(player.pawn().x(), player.pawn().y(),
-				MoveType.PAWN, gcost, player, null);
-		open.add(current);
-		boolean foundGoal = false;
-		while (open.peek() != null && !foundGoal) {
-			current = open.poll();
-			gcost = current.gcost() + 1;
-
-			tempPawn = new Point(current.coord().x(), current.coord().y());
-			tempPlayer.pawn = tempPawn;
-			if (tempPlayer.goalDistance() == 0) {
-				foundGoal = true;
-			} else {
-				// expand current
-				next = new WeightedMove(current.coord().x() + 1, current
-						.coord().y(), MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
-				next = new WeightedMove(current.coord().x() - 1, current
-						.coord().y(), MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
-				next = new WeightedMove(current.coord().x(), current.coord()
-						.y() - 1, MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
-				next = new WeightedMove(current.coord().x(), current.coord()
-						.y() + 1, MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
+	public long legalHorizontalWalls() {
+		if (myTurn.wallsLeft() <= 0) {
+			return 0;
+		}
+		return legalWalls.horizontal(pawnSquare(players._1),
+				pawnSquare(players._2));
+	}
+
+	/**
+	 * The vertical wall slots where the player to move can place a wall, see
+	 * legalHorizontalWalls().
+	 * 
+	 * @return the mask of the legal slots, with the bits of WallBoard.slot(),
+	 *         0 if the player has no wall left
+	 */
+	public long legalVerticalWalls() {
+		if (myTurn.wallsLeft() <= 0) {
+			return 0;
+		}
+		return legalWalls.vertical(pawnSquare(players._1),
+				pawnSquare(players._2));
+	}
+
+	/**
+	 * Generates the legal moves of the player to move: the pawn steps and
+	 * jumps, worked out from the pawns and the walls, then the legal walls.
+	 * The moves are the ones isValid() accepts, except for the pawn staying on
+	 * its square, which isValidJump() lets through when it faces the opponent
+	 * and a wall.
+	 * 
+	 * @param moves
+	 *            receives the codes of the moves, see MoveCode. It needs
+	 *            MAX_MOVES entries.
+	 * @return the number of moves generated
+	 */
+	public int generateMoves(int[] moves) {
+		int count = generatePawnMoves(moves);
+		if (myTurn.wallsLeft() > 0) {
+			for (long bits = legalHorizontalWalls(); bits != 0; bits &= bits - 1) {
+				moves[count++] = MoveCode.horizontal(Long
+						.numberOfTrailingZeros(bits));
+			}
+			for (long bits = legalVerticalWalls(); bits != 0; bits &= bits - 1) {
+				moves[count++] = MoveCode.vertical(Long
+						.numberOfTrailingZeros(bits));
 			}
-			closed.add(current);
 		}
+		return count;
+	}
 
-		LinkedList<Move> result = null;
+	/**
+	 * Generates the pawn moves of the player to move, see generateMoves().
+	 * 
+	 * @return the number of moves generated
+	 */
+	int generatePawnMoves(int[] moves) {
+		return generatePawnMoves(pawnSquare(myTurn),
+				pawnSquare(players.other(myTurn)), moves);
+	}
 
-		if (foundGoal) {
-			result = new LinkedList<Move>();
-			result.add(current);
-			while (current.parent() != null) {
-				current = current.parent();
-				result.addFirst(current);
+	/**
+	 * Generates the moves of a pawn around the walls of the game, wherever
+	 * the pawns are.
+	 * 
+	 * @param from
+	 *            the square of the pawn to move
+	 * @param opponent
+	 *            the square of the other pawn
+	 * @param moves
+	 *            receives the codes of the moves
+	 * @return the number of moves generated
+	 */
+	int generatePawnMoves(int from, int opponent, int[] moves) {
+		int count = 0;
+		for (int k = 0; k < 4; k++) {
+			int to = wallBoard.neighbour(from, k);
+			if (to < 0) {
+				continue;
+			}
+			if (to != opponent) {
+				moves[count++] = MoveCode.pawn(to);
+				continue;
+			}
+			int beyond = wallBoard.neighbour(opponent, k);
+			if (beyond >= 0) {
+				moves[count++] = MoveCode.pawn(beyond);
+			} else if (k != 1 || opponent % 9 != 0) {
+				// the straight jump is blocked, so the pawn can go to the
+				// sides of the opponent. Like oppositeBlocked(), the left
+				// border of the board does not count as blocking.
+				for (int j = 0; j < 4; j++) {
+					int side = wallBoard.neighbour(opponent, j);
+					if (side >= 0 && side != from) {
+						moves[count++] = MoveCode.pawn(side);
+					}
+				}
 			}
 		}
+		return count;
+	}
 
-		return result;
+	/**
+	 * The index of the square a player's pawn is on, see WallBoard.square().
+	 */
+	int pawnSquare(Player player) {
+		return WallBoard.square(player.pawn().x(), player.pawn().y());
+	}
 
+	/**
+	 * Checks if a player can still reach its goal, going around the walls.
+	 * 
+	 * @param player
+	 *            the player whose pawn has to reach its goal
+	 * @return true if there is a path to the goal, false if not
+	 */
+	public boolean canReachGoal(Player player) {
+		return wallBoard.canReach(
+				WallBoard.square(player.pawn().x(), player.pawn().y()),
+				player.goal());
 	}
-	
+
 	/**
 	 * Computes the shortest path for a player to reach the goal as a list of
-	 * moves.
-	 * Blantant copy of the original method for path to goal
+	 * moves, starting with the square the pawn is on.
+	 * 
 	 * @param player
 	 *            for which shortest path to win is computed
-	 * @return shortest list of moves to win
+	 * @return shortest list of moves to win, or null if there is none
 	 */
-	public LinkedList<Move> movesToNextColumn(Player player) {
-		Comparator<WeightedMove> comparator = new WeightedMoveComparator();
-		PriorityQueue<WeightedMove> open = new PriorityQueue<WeightedMove>(81,
-				comparator);
-		LinkedList<WeightedMove> closed = new LinkedList<WeightedMove>();
-
-		WeightedMove current = null;
-		WeightedMove next = null;
-
-		Player tempPlayer = new Human(null);
-		tempPlayer.setGoal(player.goal);
-		Point tempPawn;
-		
-		//int goal = tempPlayer.goalDistance() - 1;
-		int goal = player.goalDistance() - 1;
-
-		int gcost = 0;
-		current = new WeightedMove(player.pawn().x(), player.pawn().y(),
-				MoveType.PAWN, gcost, player, null);
-		open.add(current);
-		boolean foundGoal = false;
-		while (open.peek() != null && !foundGoal) {
-			current = open.poll();
-			gcost = current.gcost() + 1;
-
-			tempPawn = new Point(current.coord().x(), current.coord().y());
-			tempPlayer.pawn = tempPawn;
-			if (tempPlayer.goalDistance() == goal) {
-				foundGoal = true;
-			} else {
-				// expand current
-				next = new WeightedMove(current.coord().x() + 1, current
-						.coord().y(), MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
-				next = new WeightedMove(current.coord().x() - 1, current
-						.coord().y(), MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
-				next = new WeightedMove(current.coord().x(), current.coord()
-						.y() - 1, MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
-				next = new WeightedMove(current.coord().x(), current.coord()
-						.y() + 1, MoveType.PAWN, gcost, player, current);
-				if (isNotBlocked(next, tempPlayer) && isInBoard(next)
-						&& !(open.contains(next) || closed.contains(next)))
-					open.offer(next);
-			}
-			closed.add(current);
-		}
+	public LinkedList<Move> shortestPath(Player player) {
+		return pathToRow(player, player.goal());
+	}
 
-		LinkedList<Move> result = null;
+	/**
+	 * Computes the length of the shortest path for a player to reach the goal,
+	 * without building the path. The distances are maintained as walls are
+	 * placed, so this is an array lookup.
+	 * 
+	 * @param player
+	 *            for which shortest path to win is computed
+	 * @return the number of moves needed to win, or -1 if the goal can't be
+	 *         reached
+	 */
+	public int distanceToGoal(Player player) {
+		return distanceFields[index(player)].distance(
+				WallBoard.square(player.pawn().x(), player.pawn().y()));
+	}
 
-		if (foundGoal) {
-			result = new LinkedList<Move>();
-			result.add(current);
-			while (current.parent() != null) {
-				current = current.parent();
-				result.addFirst(current);
-			}
+	/**
+	 * The length of the shortest path for a player to reach the goal from any
+	 * square, see distanceToGoal().
+	 * 
+	 * @param player
+	 *            whose goal is to be reached
+	 * @param square
+	 *            the index of the square, see WallBoard.square()
+	 * @return the number of moves needed, or -1 if the goal can't be reached
+	 */
+	public int distanceToGoal(Player player, int square) {
+		return distanceFields[index(player)].distance(square);
+	}
+
+	/**
+	 * Marks the edges of a shortest path for a player to reach the goal,
+	 * without building the path, see DistanceField.pathEdges().
+	 * 
+	 * @param player
+	 *            for which shortest path is marked
+	 * @param edges
+	 *            receives the masks of the edges of the path
+	 */
+	public void shortestPathEdges(Player player, long[] edges) {
+		distanceFields[index(player)].pathEdges(pawnSquare(player), edges);
+	}
+
+	/**
+	 * Computes the shortest path for a player to reach the next row towards
+	 * its goal as a list of moves, starting with the square the pawn is on.
+	 * 
+	 * @param player
+	 *            for which shortest path is computed
+	 * @return shortest list of moves to the next row, or null if there is
+	 *         none
+	 */
+	public LinkedList<Move> movesToNextColumn(Player player) {
+		if (player.goalDistance() == 0) {
+			return null;
+		}
+		if (player.goal() > player.pawn().y()) {
+			return pathToRow(player, player.pawn().y() + 1);
+		} else {
+			return pathToRow(player, player.pawn().y() - 1);
 		}
+	}
 
+	/**
+	 * Computes the shortest path for a player to reach a row as a list of
+	 * moves, starting with the square the pawn is on.
+	 */
+	private LinkedList<Move> pathToRow(Player player, int row) {
+		int s = pathFinder.path(
+				WallBoard.square(player.pawn().x(), player.pawn().y()), row);
+		if (s < 0) {
+			return null;
+		}
+		LinkedList<Move> result = new LinkedList<Move>();
+		for (; s >= 0; s = pathFinder.parent(s)) {
+			result.addFirst(new Move(s % 9, s / 9 + 1, MoveType.PAWN));
+		}
 		return result;
-
 	}
 
 }
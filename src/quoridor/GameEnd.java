@@ -0,0 +1,67 @@
+package quoridor;
+
+/**
+ * GameEnd tells why a game ended: a pawn reached its goal, or the game was
+ * adjudicated before, see Game.adjudicate().
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Tells the callers of Game.play() and MatchRunner whether the game was
+ * played out, and if not, why it was stopped.</li>
+ * <li>Tells whether the game has a winner.</li>
+ * </ul>
+ *
+ */
+
+public enum GameEnd {
+
+	/**
+	 * A pawn reached its goal.
+	 */
+	GOAL(true, ""),
+	/**
+	 * The winner of the race was known, see Game.raceWinner().
+	 */
+	RACE(true, ", adjudicated on the race"),
+	/**
+	 * The player to move had no valid move, and lost.
+	 */
+	NO_MOVE(true, ", the loser having no valid move"),
+	/**
+	 * The same position came up three times with the same player to move, a
+	 * draw.
+	 */
+	REPETITION(false, ", adjudicated on a threefold repetition"),
+	/**
+	 * The game reached its maximum number of plies, a draw.
+	 */
+	MAX_PLIES(false, ", adjudicated on the maximum number of plies");
+
+	final boolean decisive;
+	final String description;
+
+	GameEnd(boolean decisive, String description) {
+		this.decisive = decisive;
+		this.description = description;
+	}
+
+	/**
+	 * Tells if a game ending this way has a winner.
+	 *
+	 * @return true if it has one, false for a draw.
+	 */
+	public boolean isDecisive() {
+		return decisive;
+	}
+
+	/**
+	 * Tells if a game ending this way was stopped before a pawn reached its
+	 * goal.
+	 *
+	 * @return true if it was adjudicated.
+	 */
+	public boolean isAdjudicated() {
+		return this != GOAL;
+	}
+
+}
@@ -42,6 +42,19 @@ public class GameFactory {
 	
 	static Random random;
 
+	/**
+	 * File of the opening book of the AI players, see OpeningBookBuilder.
+	 */
+	public static final String OPENING_BOOK_FILE = "opening.book";
+	static OpeningBook openingBook;
+	static boolean openingBookOpened;
+
+	/**
+	 * Number of games of a generation played at once, see Tournament.
+	 */
+	public static int tournamentThreads = Runtime.getRuntime()
+			.availableProcessors();
+
 	/**
 	 * Main Function of the program. It's where it all start.
 	 * @param args Arguments passed to the main function of the program to trigger specific use of the program. Not used here.
@@ -84,17 +97,8 @@ public class GameFactory {
 	}
 	
 	private static Subject[] runOneGeneration(Subject[] pop) {
-		for(Subject s : pop) s.fitnessFunction = 0;
-		for(int i = 0; i < pop.length; i++) {
-			for(int j = 0; j < pop.length; j++) {
-				if(i == j) continue;
-				if(playGame(pop[i], pop[j]) == 1) {
-					pop[i].fitnessFunction++;
-				} else
-					pop[j].fitnessFunction++;
-			}
-		}
-		return pop;
+		// every subject plays every other one, on tournamentThreads threads
+		return new Tournament(pop, random.nextLong(), tournamentThreads).play();
 	}
 	
 	private static Subject[] spawn(Subject[] pop) {
@@ -152,22 +156,6 @@ public class GameFactory {
 		return pop;
 	}
 	
-	private static int playGame(Subject subject, Subject subject2) {
-		Two<Player> players = null;
-		Player playerOne;
-		Player playerTwo;
-		playerOne = new AIPlayer("Computer 1", subject.weights);
-		playerTwo = new AIPlayer("Computer 2", subject2.weights);
-		players = Two.two(playerOne, playerTwo);
-		String winner = newGame(players);
-		if (winner.equals("Computer 1")) {
-			return 1;
-		} else if (winner.equals("Computer 2")) {
-			return 2;
-		}
-		return 0;
-	}
-	
 	public static void run2() {
 		Two<Player> players = null;
 		Player playerOne;
@@ -310,10 +298,36 @@ public class GameFactory {
 
 
 	/**
-	 * Creates a new Game. Initializes it.
+	 * The opening book in OPENING_BOOK_FILE, mapped the first time it is
+	 * needed and shared by every game.
+	 * @return the opening book, or null if there is none.
+	 */
+	public static synchronized OpeningBook openingBook() {
+		if (!openingBookOpened) {
+			openingBookOpened = true;
+			File file = new File(OPENING_BOOK_FILE);
+			if (file.exists()) {
+				try {
+					openingBook = new OpeningBook(file);
+				} catch (IOException ex) {
+					System.out.println("The opening book cannot be read.");
+				}
+			}
+		}
+		return openingBook;
+	}
+
+	/**
+	 * Creates a new Game. Initializes it. The AI players without an opening
+	 * book get the one of openingBook().
 	 */
 	public static String newGame(Two<Player> players) {
 		System.out.println("Making a new game...");
+		for (Player p : new Player[] { players._1(), players._2() }) {
+			if (p instanceof AIPlayer && ((AIPlayer) p).openingBook == null) {
+				((AIPlayer) p).openingBook = openingBook();
+			}
+		}
 		Game game = new Game(players);
 		game.initGame(null);
 		return game.play();
@@ -0,0 +1,45 @@
+package quoridor;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * LazySmpHelper runs a helper of a Lazy SMP search on a thread of a
+ * ForkJoinPool.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Searches the same position as the AI it helps, until that AI stops
+ * it.</li>
+ * <li>Shares its results only through the transposition table.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The helper is a worker AI with its own copy of the game, see
+ * AI.startHelpers(), and the task only runs its search.</li>
+ * </ul>
+ *
+ */
+
+public class LazySmpHelper extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	final AI helper;
+
+	/**
+	 * A task running the search of a helper.
+	 *
+	 * @param helper
+	 *            the helper to run.
+	 */
+	LazySmpHelper(AI helper) {
+		this.helper = helper;
+	}
+
+	@Override
+	protected void compute() {
+		helper.helpSearch();
+	}
+
+}
@@ -0,0 +1,234 @@
+package quoridor;
+
+import quoridor.Move.MoveType;
+
+/**
+ * LegalWalls finds all the wall slots where a wall can legally be placed, in
+ * one go, and remembers them until the walls on the board change.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Gives the legal horizontal and vertical wall slots as two masks, with
+ * the bits of WallBoard.slot().</li>
+ * <li>Runs a connectivity check only for the walls that could disconnect a
+ * pawn from its goal, instead of two path searches per wall.</li>
+ * <li>Keeps its results while only pawns move, and for every number of walls
+ * on the board, so that a search making and unmaking moves finds them
+ * again.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>A wall that does not block an edge of a shortest path of a player leaves
+ * that path open, so it can't disconnect that player. The shortest paths are
+ * read from the distance fields of Game, without any search.</li>
+ * <li>For a wall that blocks an edge of a path, the squares that can still
+ * reach the goal row with the wall placed are flood filled from the goal row.
+ * That mask does not depend on the pawns, so it is kept with the walls and the
+ * wall is legal while the pawn is in it.</li>
+ * <li>The results are kept per number of walls on the board, and checked
+ * against the walls they were computed for before being used.</li>
+ * </ul>
+ *
+ */
+
+public class LegalWalls {
+
+	// a board has at most 20 walls, so 21 numbers of walls
+	static final int LEVELS = 21;
+	// 64 horizontal slots then 64 vertical ones, for each goal
+	static final int SLOTS = 128;
+
+	final WallBoard walls;
+	final DistanceField[] fields;
+
+	// the walls each level was computed for
+	final long[] wallsH = new long[LEVELS];
+	final long[] wallsV = new long[LEVELS];
+	// slots where a wall is not on top of or crossing another one
+	final long[] freeH = new long[LEVELS];
+	final long[] freeV = new long[LEVELS];
+	// the pawns and result of the last call at each level
+	final int[] pawns1 = new int[LEVELS];
+	final int[] pawns2 = new int[LEVELS];
+	final long[] legalH = new long[LEVELS];
+	final long[] legalV = new long[LEVELS];
+	// numbers stamping the reach masks computed for the walls of each level
+	final int[] stamps = new int[LEVELS];
+	int lastStamp = 0;
+
+	// squares that reach the goal row with a wall placed, per level, goal
+	// and slot, allocated on first use
+	int[] reachStamps;
+	long[] reach;
+
+	// edges used by the shortest path of each player, see
+	// DistanceField.pathEdges()
+	final long[][] paths = new long[2][4];
+
+	// number of reach masks flood filled
+	long floods;
+
+	/**
+	 * Creates the legal walls of a board.
+	 *
+	 * @param walls
+	 *            the walls of the board.
+	 * @param fields
+	 *            the distance fields of the goals of both players, kept up to
+	 *            date with the walls.
+	 */
+	public LegalWalls(WallBoard walls, DistanceField[] fields) {
+		this.walls = walls;
+		this.fields = fields;
+	}
+
+	/**
+	 * The legal horizontal wall slots for pawns on two squares.
+	 *
+	 * @param pawn1
+	 *            the square of the pawn of the first player.
+	 * @param pawn2
+	 *            the square of the pawn of the second player.
+	 * @return the mask of the legal slots.
+	 */
+	public long horizontal(int pawn1, int pawn2) {
+		return legalH[update(pawn1, pawn2)];
+	}
+
+	/**
+	 * The legal vertical wall slots for pawns on two squares.
+	 *
+	 * @param pawn1
+	 *            the square of the pawn of the first player.
+	 * @param pawn2
+	 *            the square of the pawn of the second player.
+	 * @return the mask of the legal slots.
+	 */
+	public long vertical(int pawn1, int pawn2) {
+		return legalV[update(pawn1, pawn2)];
+	}
+
+	/**
+	 * Makes sure the legal walls of the current walls and pawns are known.
+	 *
+	 * @return the level they are stored at.
+	 */
+	private int update(int pawn1, int pawn2) {
+		int level = Long.bitCount(walls.hWalls) + Long.bitCount(walls.vWalls);
+		if (wallsH[level] != walls.hWalls || wallsV[level] != walls.vWalls
+				|| stamps[level] == 0) {
+			wallsH[level] = walls.hWalls;
+			wallsV[level] = walls.vWalls;
+			stamps[level] = ++lastStamp;
+			pawns1[level] = -1;
+			freeH[level] = freeSlots(MoveType.HORIZONTAL);
+			freeV[level] = freeSlots(MoveType.VERTICAL);
+		} else if (pawns1[level] == pawn1 && pawns2[level] == pawn2) {
+			return level;
+		}
+
+		fields[0].pathEdges(pawn1, paths[0]);
+		fields[1].pathEdges(pawn2, paths[1]);
+		legalH[level] = legalSlots(level, freeH[level], MoveType.HORIZONTAL,
+				pawn1, pawn2);
+		legalV[level] = legalSlots(level, freeV[level], MoveType.VERTICAL,
+				pawn1, pawn2);
+		pawns1[level] = pawn1;
+		pawns2[level] = pawn2;
+		return level;
+	}
+
+	/**
+	 * The slots of a direction where a wall is not on top of or crossing
+	 * another one.
+	 */
+	private long freeSlots(MoveType dir) {
+		long free = 0;
+		for (int slot = 0; slot < 64; slot++) {
+			int x = slotX(slot, dir);
+			int y = slotY(slot, dir);
+			if (!walls.isCrossing(x, y, dir)) {
+				free |= 1L << slot;
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Keeps the free slots whose wall leaves both pawns a path to their goal.
+	 */
+	private long legalSlots(int level, long free, MoveType dir, int pawn1,
+			int pawn2) {
+		long legal = 0;
+		for (long bits = free; bits != 0; bits &= bits - 1) {
+			int slot = Long.numberOfTrailingZeros(bits);
+			int x = slotX(slot, dir);
+			int y = slotY(slot, dir);
+			// the two edges the wall blocks
+			int first;
+			int second;
+			int edges;
+			if (dir == MoveType.HORIZONTAL) {
+				first = WallBoard.square(x, y - 1);
+				second = first + 1;
+				edges = 0;
+			} else {
+				first = WallBoard.square(x - 1, y);
+				second = first + 9;
+				edges = 2;
+			}
+			if (keepsPath(level, 0, pawn1, edges, first, second, slot, dir)
+					&& keepsPath(level, 1, pawn2, edges, first, second, slot,
+							dir)) {
+				legal |= 1L << slot;
+			}
+		}
+		return legal;
+	}
+
+	/**
+	 * Checks if a pawn can still reach its goal with a wall placed: either the
+	 * wall does not block its shortest path, or the pawn is among the squares
+	 * that still reach the goal row.
+	 */
+	private boolean keepsPath(int level, int player, int pawn, int edges,
+			int first, int second, int slot, MoveType dir) {
+		long[] path = paths[player];
+		if (!WallBoard.test(path[edges], path[edges + 1], first)
+				&& !WallBoard.test(path[edges], path[edges + 1], second)) {
+			return true;
+		}
+		if (reach == null) {
+			reachStamps = new int[LEVELS * 2 * SLOTS];
+			reach = new long[LEVELS * 2 * SLOTS * 2];
+		}
+		int entry = (level * 2 + player) * SLOTS
+				+ (dir == MoveType.HORIZONTAL ? slot : 64 + slot);
+		if (reachStamps[entry] != stamps[level]) {
+			int x = slotX(slot, dir);
+			int y = slotY(slot, dir);
+			walls.place(x, y, dir);
+			walls.reachableFrom(fields[player].goalRow, reach, entry * 2);
+			walls.remove(x, y, dir);
+			reachStamps[entry] = stamps[level];
+			floods++;
+		}
+		return WallBoard.test(reach[entry * 2], reach[entry * 2 + 1], pawn);
+	}
+
+	/**
+	 * The letter coordinate of a wall slot.
+	 */
+	static int slotX(int slot, MoveType dir) {
+		return dir == MoveType.HORIZONTAL ? slot % 8 : slot % 8 + 1;
+	}
+
+	/**
+	 * The number coordinate of a wall slot.
+	 */
+	static int slotY(int slot, MoveType dir) {
+		return dir == MoveType.HORIZONTAL ? slot / 8 + 2 : slot / 8 + 1;
+	}
+
+}
@@ -0,0 +1,361 @@
+package quoridor;
+
+import java.util.Arrays;
+
+/**
+ * MCTS is called to generate a move with a Monte Carlo tree search, instead
+ * of the alpha-beta search of AI.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Grows a tree of the most promising moves, guided by the results of
+ * fast random games (playouts) instead of a heuristic at a fixed depth.</li>
+ * <li>Searches for a number of playouts, or for the time budget of the
+ * player.</li>
+ * <li>Reports how many playouts it ran per second.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>Children are selected with PUCT: their win rate, plus an exploration
+ * term weighted by a prior of the move. Pawn moves along the shortest path
+ * and walls blocking the shortest path of the opponent get the highest
+ * priors.</li>
+ * <li>A node is expanded the second time it is reached, in the NodePool of
+ * the player, and a playout is run from one of its children.</li>
+ * <li>Playouts move the pawn along the shortest path, and sometimes place a
+ * wall blocking the shortest path of the opponent. Once both players are out
+ * of walls, the shorter path wins, without playing the race out.</li>
+ * <li>Moves are made and unmade on a single copy of the game, kept from one
+ * move to the next, see AI.followGame().</li>
+ * </ul>
+ *
+ */
+
+public class MCTS {
+
+	// weight of the exploration term of PUCT
+	static final float EXPLORATION = 1.5f;
+	// win rate of the children that have not been visited yet
+	static final float UNVISITED_VALUE = 0.5f;
+	// priors before normalization
+	static final float PATH_STEP_PRIOR = 1f;
+	static final float PAWN_PRIOR = 0.1f;
+	static final float BLOCKING_WALL_PRIOR = 0.3f;
+	static final float WALL_PRIOR = 0.01f;
+	// chance, in 256ths, that a playout places a wall when it can
+	static final int PLAYOUT_WALL_RATE = 32;
+	// a playout longer than this is decided on the paths left
+	static final int MAX_PLAYOUT_PLIES = 200;
+
+	Game game;
+	Player player;
+	// the copy of the game the last move was searched on
+	Game searchGame;
+	NodePool pool;
+	// playouts to run when there is no time budget
+	int playouts;
+	// time budget of a move in milliseconds, 0 for none
+	long moveTimeMillis;
+	// state of the random numbers of the playouts, never 0
+	long seed;
+
+	// nodes from the root to the node being searched
+	int[] path = new int[64];
+	int[] moveBuffer = new int[Game.MAX_MOVES];
+	long[] edges = new long[4];
+
+	// playouts run and time spent by the last search
+	int playoutsRun;
+	long millis;
+
+	/**
+	 * Constructor for MCTS. It requires type Game to be passed in, the
+	 * player to move being an AIPlayer.
+	 *
+	 * @param game
+	 *            the game MCTS is required for.
+	 */
+	public MCTS(Game game) {
+		this.game = game;
+		player = game.myTurn();
+		AIPlayer ai = (AIPlayer) player;
+		pool = ai.nodePool();
+		playouts = ai.playouts;
+		moveTimeMillis = ai.moveTimeMillis;
+		seed = (ai.noiseSeed ^ game.hash()) | 1;
+	}
+
+	/**
+	 * Creates a move with a Monte Carlo tree search, and adds its playouts
+	 * to the ones of the player.
+	 *
+	 * @return a Move, or null if the player to move has none
+	 */
+	public Move createMove() {
+		searchGame = AI.followGame(searchGame, game.moves);
+		pool.reset();
+		long start = System.currentTimeMillis();
+		long deadline = moveTimeMillis > 0 ? start + moveTimeMillis : 0;
+		playoutsRun = 0;
+		do {
+			iterate(searchGame);
+			playoutsRun++;
+		} while (deadline > 0 ? (playoutsRun & 31) != 0
+				|| System.currentTimeMillis() < deadline
+				: playoutsRun < playouts);
+		millis = System.currentTimeMillis() - start;
+
+		AIPlayer ai = (AIPlayer) player;
+		ai.playoutsRun += playoutsRun;
+		ai.playoutMillis += millis;
+		int best = bestMove();
+		return best < 0 ? null : MoveCode.toMove(best);
+	}
+
+	/**
+	 * The number of playouts the last search ran per second.
+	 *
+	 * @return the playouts per second.
+	 */
+	public float playoutsPerSecond() {
+		return millis == 0 ? 0 : playoutsRun * 1000f / millis;
+	}
+
+	/**
+	 * The move of the root child that was visited the most, or -1 if the root
+	 * has no child.
+	 */
+	private int bestMove() {
+		int first = pool.firstChild[0];
+		if (first < 0 || pool.childCount[0] == 0) {
+			return -1;
+		}
+		int best = first;
+		for (int c = first; c < first + pool.childCount[0]; c++) {
+			if (pool.visits[c] > pool.visits[best]) {
+				best = c;
+			}
+		}
+		return pool.moves[best];
+	}
+
+	/**
+	 * Runs one iteration: selects a path down the tree, expands its last
+	 * node, runs a playout from there and counts its result in the nodes of
+	 * the path. The searched game is left as it was.
+	 */
+	private void iterate(Game g) {
+		int rootSide = g.index(g.myTurn());
+		int node = 0;
+		int depth = 0;
+		path[0] = 0;
+		while (pool.firstChild[node] >= 0 && !g.isOver()) {
+			node = select(node);
+			g.makeMove(pool.moves[node]);
+			push(++depth, node);
+		}
+		if (!g.isOver() && (node == 0 || pool.visits[node] > 0)
+				&& expand(g, node)) {
+			node = select(node);
+			g.makeMove(pool.moves[node]);
+			push(++depth, node);
+		}
+
+		int winner = playout(g);
+		for (int i = 0; i < depth; i++) {
+			g.unmakeMove();
+		}
+
+		pool.visits[0]++;
+		for (int i = 1; i <= depth; i++) {
+			int n = path[i];
+			pool.visits[n]++;
+			// the move to node i was made by the player to move at i - 1
+			if (winner == (rootSide ^ ((i - 1) & 1))) {
+				pool.wins[n]++;
+			}
+		}
+	}
+
+	/**
+	 * Adds a node to the path, making room for it if needed.
+	 */
+	private void push(int depth, int node) {
+		if (depth == path.length) {
+			path = Arrays.copyOf(path, depth * 2);
+		}
+		path[depth] = node;
+	}
+
+	/**
+	 * The child of a node with the best PUCT score.
+	 */
+	private int select(int node) {
+		int first = pool.firstChild[node];
+		float explore = EXPLORATION * (float) Math.sqrt(pool.visits[node] + 1);
+		int best = first;
+		float bestScore = Float.NEGATIVE_INFINITY;
+		for (int c = first; c < first + pool.childCount[node]; c++) {
+			int visits = pool.visits[c];
+			float value = visits == 0 ? UNVISITED_VALUE : pool.wins[c]
+					/ visits;
+			float score = value + explore * pool.priors[c] / (1 + visits);
+			if (score > bestScore) {
+				bestScore = score;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Creates the children of a node, one per legal move, with their priors.
+	 *
+	 * @return false if the pool is full or there is no legal move.
+	 */
+	private boolean expand(Game g, int node) {
+		int count = g.generateMoves(moveBuffer);
+		int first = count == 0 ? -1 : pool.allocate(count);
+		if (first < 0) {
+			return false;
+		}
+		Player p = g.myTurn();
+		int distance = g.distanceToGoal(p);
+		if (p.wallsLeft() > 0) {
+			g.shortestPathEdges(g.players().other(p), edges);
+		}
+		float total = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moveBuffer[i];
+			float prior;
+			if (!MoveCode.isWall(move)) {
+				prior = g.distanceToGoal(p, move) < distance ? PATH_STEP_PRIOR
+						: PAWN_PRIOR;
+			} else {
+				prior = MoveCode.blocks(move, edges) ? BLOCKING_WALL_PRIOR
+						: WALL_PRIOR;
+			}
+			pool.moves[first + i] = move;
+			pool.priors[first + i] = prior;
+			total += prior;
+		}
+		for (int i = 0; i < count; i++) {
+			pool.priors[first + i] /= total;
+		}
+		pool.firstChild[node] = first;
+		pool.childCount[node] = count;
+		return true;
+	}
+
+	/**
+	 * Plays the game out from the current position, and unmakes the moves of
+	 * the playout.
+	 *
+	 * @return the index of the winner, see Game.index()
+	 */
+	private int playout(Game g) {
+		int plies = 0;
+		int winner;
+		while (true) {
+			if (g.isOver()) {
+				winner = g.index(g.winner());
+				break;
+			}
+			Player p = g.myTurn();
+			Player other = g.players().other(p);
+			if ((p.wallsLeft() == 0 && other.wallsLeft() == 0)
+					|| plies == MAX_PLAYOUT_PLIES) {
+				// a race: the player to move wins ties, being a step ahead
+				int side = g.index(p);
+				winner = g.distanceToGoal(p) <= g.distanceToGoal(other) ? side
+						: 1 - side;
+				break;
+			}
+			int move = playoutMove(g, p, other);
+			if (move < 0) {
+				winner = g.index(other);
+				break;
+			}
+			g.makeMove(move);
+			plies++;
+		}
+		for (int i = 0; i < plies; i++) {
+			g.unmakeMove();
+		}
+		return winner;
+	}
+
+	/**
+	 * The move of a playout: sometimes a wall blocking the shortest path of
+	 * the opponent, otherwise the pawn move getting the closest to the goal.
+	 *
+	 * @return the code of the move, or -1 if the player can't move
+	 */
+	private int playoutMove(Game g, Player p, Player other) {
+		if (p.wallsLeft() > 0 && (next() & 0xFF) < PLAYOUT_WALL_RATE) {
+			g.shortestPathEdges(other, edges);
+			int wall = randomBlockingWall(g.legalHorizontalWalls(),
+					g.legalVerticalWalls());
+			if (wall >= 0) {
+				return wall;
+			}
+		}
+		int count = g.generatePawnMoves(moveBuffer);
+		int best = -1;
+		int bestDistance = Integer.MAX_VALUE;
+		int ties = 0;
+		for (int i = 0; i < count; i++) {
+			int d = g.distanceToGoal(p, moveBuffer[i]);
+			if (d < bestDistance) {
+				bestDistance = d;
+				best = moveBuffer[i];
+				ties = 1;
+			} else if (d == bestDistance && next() % ++ties == 0) {
+				// a uniform choice among the moves as close
+				best = moveBuffer[i];
+			}
+		}
+		if (best < 0) {
+			// the pawn is boxed in, see Game.generateMoves()
+			count = g.generateMoves(moveBuffer);
+			return count == 0 ? -1 : moveBuffer[(int) (next() % count)];
+		}
+		return best;
+	}
+
+	/**
+	 * A random legal wall among the ones blocking the path in edges.
+	 *
+	 * @return the code of the wall, or -1 if there is none.
+	 */
+	private int randomBlockingWall(long horizontal, long vertical) {
+		int count = 0;
+		for (long bits = horizontal; bits != 0; bits &= bits - 1) {
+			int code = MoveCode.horizontal(Long.numberOfTrailingZeros(bits));
+			if (MoveCode.blocks(code, edges)) {
+				moveBuffer[count++] = code;
+			}
+		}
+		for (long bits = vertical; bits != 0; bits &= bits - 1) {
+			int code = MoveCode.vertical(Long.numberOfTrailingZeros(bits));
+			if (MoveCode.blocks(code, edges)) {
+				moveBuffer[count++] = code;
+			}
+		}
+		return count == 0 ? -1 : moveBuffer[(int) (next() % count)];
+	}
+
+	/**
+	 * The next random number of the playouts, from a xorshift generator.
+	 *
+	 * @return a random number, never negative.
+	 */
+	private long next() {
+		seed ^= seed << 13;
+		seed ^= seed >>> 7;
+		seed ^= seed << 17;
+		return seed >>> 1;
+	}
+
+}
@@ -0,0 +1,142 @@
+package quoridor;
+
+/**
+ * MatchResult is what MatchRunner tells about a match: who won, the moves
+ * played and how long each one took to find.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Gives the winner as the index of the engine, 1 or 2, rather than by
+ * name, and why the match ended.</li>
+ * <li>Keeps every move with the time its engine took, and the walls left at
+ * the end, for training and regression runs to compare engines.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>Moves are kept as codes, see MoveCode, and times in nanoseconds, in
+ * arrays of the length of the match.</li>
+ * </ul>
+ *
+ */
+
+public class MatchResult {
+
+	/**
+	 * The winner of a match nobody won.
+	 */
+	public static final int NONE = 0;
+
+	// 1 for the engine playing first, 2 for the other one, NONE for none
+	final int winner;
+	// why the match ended
+	final GameEnd end;
+	// codes of the moves and nanoseconds taken by each one
+	final int[] moves;
+	final long[] moveNanos;
+	final int[] wallsLeft;
+
+	MatchResult(int winner, GameEnd end, int[] moves, long[] moveNanos,
+			int[] wallsLeft) {
+		this.winner = winner;
+		this.end = end;
+		this.moves = moves;
+		this.moveNanos = moveNanos;
+		this.wallsLeft = wallsLeft;
+	}
+
+	/**
+	 * The winner of the match.
+	 *
+	 * @return 1 if the engine playing first won, 2 if the other one did, NONE
+	 *         for a draw.
+	 */
+	public int winner() {
+		return winner;
+	}
+
+	/**
+	 * Tells why the match ended: a pawn reached its goal, or the match was
+	 * adjudicated, see Game.adjudicate().
+	 *
+	 * @return how the match ended.
+	 */
+	public GameEnd end() {
+		return end;
+	}
+
+	/**
+	 * The number of moves played, by both engines.
+	 *
+	 * @return the number of plies.
+	 */
+	public int plies() {
+		return moves.length;
+	}
+
+	/**
+	 * A move of the match.
+	 *
+	 * @param ply
+	 *            the index of the move, the first engine playing the even
+	 *            ones.
+	 * @return the code of the move, see MoveCode.
+	 */
+	public int move(int ply) {
+		return moves[ply];
+	}
+
+	/**
+	 * The time an engine took to find a move.
+	 *
+	 * @param ply
+	 *            the index of the move.
+	 * @return the time in nanoseconds.
+	 */
+	public long moveNanos(int ply) {
+		return moveNanos[ply];
+	}
+
+	/**
+	 * The time an engine took to find all its moves.
+	 *
+	 * @param engine
+	 *            1 for the engine playing first, 2 for the other one.
+	 * @return the time in nanoseconds.
+	 */
+	public long totalNanos(int engine) {
+		long total = 0;
+		for (int ply = engine - 1; ply < moveNanos.length; ply += 2) {
+			total += moveNanos[ply];
+		}
+		return total;
+	}
+
+	/**
+	 * The walls an engine had left at the end of the match.
+	 *
+	 * @param engine
+	 *            1 for the engine playing first, 2 for the other one.
+	 * @return the number of walls.
+	 */
+	public int wallsLeft(int engine) {
+		return wallsLeft[engine - 1];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder line = new StringBuilder();
+		line.append(winner == NONE ? "Draw" : "Engine " + winner + " won")
+				.append(" after ").append(plies()).append(" plies")
+				.append(end.description)
+				.append(", walls left ").append(wallsLeft[0]).append('/')
+				.append(wallsLeft[1]).append(", ")
+				.append(totalNanos(1) / 1000000).append('/')
+				.append(totalNanos(2) / 1000000).append(" ms:");
+		for (int move : moves) {
+			line.append(' ').append(MoveCode.toString(move));
+		}
+		return line.toString();
+	}
+
+}
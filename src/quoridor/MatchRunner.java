@@ -0,0 +1,217 @@
+package quoridor;
+
+import java.util.Arrays;
+
+import util.Two;
+
+/**
+ * MatchRunner plays matches between two engines without any console input
+ * or output, for training and regression runs.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Takes the configurations of the engines, see EngineConfig, and returns
+ * the result of the match, see MatchResult.</li>
+ * <li>Prints nothing and reads nothing, so that many matches can run at
+ * once.</li>
+ * <li>Does as little as possible between the moves, so that the time of a
+ * match is the time of its searches.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>Each engine gets one AI, or one MCTS, for the whole match, instead of
+ * one per move like in Game.play(). Their buffers, move ordering, compiled
+ * evaluator and copy of the game are kept from one move to the next, see
+ * AI.rootGame().</li>
+ * <li>The moves and their times go in buffers of the runner, reused from one
+ * match to the next, and only the result is allocated per match.</li>
+ * <li>The transposition tables and node pools of the engines are kept by the
+ * runner too, and the tables are cleared before each match, so that a runner
+ * playing many matches, see Tournament, allocates them once.</li>
+ * <li>The winner is the engine, not the name of its player.</li>
+ * <li>Matches end when Game.adjudicate() says so: by default on a known race,
+ * a threefold repetition or after DEFAULT_MAX_PLIES plies, so that a match
+ * always ends.</li>
+ * </ul>
+ *
+ */
+
+public class MatchRunner {
+
+	EngineConfig first;
+	EngineConfig second;
+
+	/**
+	 * The maximum number of plies of a match, unless maxPlies is changed.
+	 */
+	public static final int DEFAULT_MAX_PLIES = 300;
+
+	/**
+	 * Set to stop a match as soon as the winner of the race is known, see
+	 * Game.raceWinner(), instead of playing the race out.
+	 */
+	public boolean adjudicateRaces = true;
+
+	/**
+	 * Set to stop a match as a draw on a threefold repetition, see
+	 * Game.repetitions().
+	 */
+	public boolean adjudicateRepetitions = true;
+
+	/**
+	 * The number of plies after which a match is a draw, 0 for none.
+	 */
+	public int maxPlies = DEFAULT_MAX_PLIES;
+
+	// codes of the moves of the match being played, and their times
+	int[] moves = new int[128];
+	long[] moveNanos = new long[128];
+	// transposition tables and node pools of the engines, by engine, and
+	// the budgets they were created for
+	final TranspositionTable[] tables = new TranspositionTable[2];
+	final int[] tableBytes = new int[2];
+	final NodePool[] nodePools = new NodePool[2];
+	final int[] nodePoolBytes = new int[2];
+
+	/**
+	 * Creates a runner for matches between two engines.
+	 *
+	 * @param first
+	 *            the engine playing first.
+	 * @param second
+	 *            the engine playing second.
+	 */
+	public MatchRunner(EngineConfig first, EngineConfig second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * Creates a runner for matches between engines given to each call of
+	 * play(EngineConfig, EngineConfig).
+	 */
+	public MatchRunner() {
+	}
+
+	/**
+	 * Plays a match between two engines from the starting position. The
+	 * engines of the runner are replaced by these ones.
+	 *
+	 * @param first
+	 *            the engine playing first.
+	 * @param second
+	 *            the engine playing second.
+	 * @return the result of the match.
+	 * @throws IllegalStateException
+	 *             if an engine plays an invalid move.
+	 */
+	public MatchResult play(EngineConfig first, EngineConfig second) {
+		this.first = first;
+		this.second = second;
+		return play();
+	}
+
+	/**
+	 * Plays a match from the starting position.
+	 *
+	 * @return the result of the match.
+	 * @throws IllegalStateException
+	 *             if an engine plays an invalid move.
+	 */
+	public MatchResult play() {
+		AIPlayer one = first.newPlayer();
+		AIPlayer two = second.newPlayer();
+		lend(0, one);
+		lend(1, two);
+		Game game = new Game(Two.two((Player) one, (Player) two));
+		game.adjudicateRaces = adjudicateRaces;
+		game.adjudicateRepetitions = adjudicateRepetitions;
+		game.maxPlies = maxPlies;
+		game.initGame(null);
+		// the searches of each engine, created on their first move
+		AI[] searches = new AI[2];
+		MCTS[] trees = new MCTS[2];
+
+		int plies = 0;
+		GameEnd end = game.adjudicate();
+		while (end == null) {
+			AIPlayer player = (AIPlayer) game.myTurn();
+			int engine = player == one ? 0 : 1;
+			long start = System.nanoTime();
+			Move move;
+			if (player.engine == AIPlayer.Engine.MCTS) {
+				if (trees[engine] == null) {
+					trees[engine] = new MCTS(game);
+				}
+				move = trees[engine].createMove();
+			} else {
+				if (searches[engine] == null) {
+					searches[engine] = new AI(game, player, game.moves);
+				}
+				move = searches[engine].createMove();
+			}
+			long nanos = System.nanoTime() - start;
+			if (move == null) {
+				// the engine has no move, and loses like in Game.play()
+				end = GameEnd.NO_MOVE;
+				break;
+			}
+			if (!game.isValid(move, player)) {
+				throw new IllegalStateException(player.name()
+						+ " played an invalid move after " + plies + " plies.");
+			}
+			game.move(move, player);
+			record(plies++, MoveCode.fromMove(move), nanos);
+			end = game.adjudicate();
+		}
+
+		Player winner = game.winner(end);
+		return new MatchResult(winner == one ? 1 : winner == two ? 2
+				: MatchResult.NONE, end, Arrays.copyOf(moves, plies),
+				Arrays.copyOf(moveNanos, plies), new int[] { one.wallsLeft(),
+						two.wallsLeft() });
+	}
+
+	/**
+	 * Gives a player of a match the transposition table and the node pool
+	 * the runner keeps for its engine, created again only when the engine
+	 * asks for another size. The table is cleared, so that the match is
+	 * played like with a new one.
+	 */
+	private void lend(int engine, AIPlayer player) {
+		if (player.transpositionTableBytes > 0) {
+			if (tables[engine] == null
+					|| tableBytes[engine] != player.transpositionTableBytes) {
+				tables[engine] = new TranspositionTable(
+						player.transpositionTableBytes);
+				tableBytes[engine] = player.transpositionTableBytes;
+			} else {
+				tables[engine].clear();
+			}
+			player.transpositionTable = tables[engine];
+		}
+		if (player.engine == AIPlayer.Engine.MCTS) {
+			if (nodePools[engine] == null
+					|| nodePoolBytes[engine] != player.nodePoolBytes) {
+				nodePools[engine] = new NodePool(player.nodePoolBytes);
+				nodePoolBytes[engine] = player.nodePoolBytes;
+			}
+			// the pool is reset before every search
+			player.nodePool = nodePools[engine];
+		}
+	}
+
+	/**
+	 * Keeps a move and its time, growing the buffers if needed.
+	 */
+	private void record(int ply, int move, long nanos) {
+		if (ply == moves.length) {
+			moves = Arrays.copyOf(moves, ply * 2);
+			moveNanos = Arrays.copyOf(moveNanos, ply * 2);
+		}
+		moves[ply] = move;
+		moveNanos[ply] = nanos;
+	}
+
+}
@@ -0,0 +1,196 @@
+package quoridor;
+
+import quoridor.Move.MoveType;
+
+/**
+ * MoveCode gives every move of the game a small int, so that moves can be
+ * generated into primitive arrays.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Encodes a pawn move or a wall placement as an int between 0 and
+ * COUNT - 1.</li>
+ * <li>Converts a code back to a Move, without allocating, and to and from
+ * the notation of Command, such as "e2" or "e3h".</li>
+ * <li>Lets the search work on ints, Move being only used when talking to the
+ * players, Command and save files.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>A pawn move is coded by the square it goes to, see WallBoard.square().
+ * </li>
+ * <li>A wall is coded by its slot, see WallBoard.slot(), after the 81 squares
+ * for horizontal walls and after the 64 horizontal slots for vertical
+ * ones.</li>
+ * <li>The Move of every code is created once, moves are never modified.</li>
+ * </ul>
+ *
+ */
+
+public class MoveCode {
+
+	/**
+	 * The code of the first horizontal wall.
+	 */
+	public static final int HORIZONTAL = 81;
+	/**
+	 * The code of the first vertical wall.
+	 */
+	public static final int VERTICAL = HORIZONTAL + 64;
+	/**
+	 * The number of codes.
+	 */
+	public static final int COUNT = VERTICAL + 64;
+
+	static final Move[] MOVES = new Move[COUNT];
+
+	static {
+		for (int square = 0; square < 81; square++) {
+			MOVES[square] = new Move(square % 9, square / 9 + 1, MoveType.PAWN);
+		}
+		for (int slot = 0; slot < 64; slot++) {
+			MOVES[HORIZONTAL + slot] = new Move(slot % 8, slot / 8 + 2,
+					MoveType.HORIZONTAL);
+			MOVES[VERTICAL + slot] = new Move(slot % 8 + 1, slot / 8 + 1,
+					MoveType.VERTICAL);
+		}
+	}
+
+	/**
+	 * The code of a pawn move.
+	 *
+	 * @param square
+	 *            the square the pawn goes to.
+	 */
+	public static int pawn(int square) {
+		return square;
+	}
+
+	/**
+	 * The code of a horizontal wall.
+	 *
+	 * @param slot
+	 *            the slot of the wall.
+	 */
+	public static int horizontal(int slot) {
+		return HORIZONTAL + slot;
+	}
+
+	/**
+	 * The code of a vertical wall.
+	 *
+	 * @param slot
+	 *            the slot of the wall.
+	 */
+	public static int vertical(int slot) {
+		return VERTICAL + slot;
+	}
+
+	/**
+	 * Checks if a code is a wall placement.
+	 *
+	 * @return true for a wall, false for a pawn move.
+	 */
+	public static boolean isWall(int code) {
+		return code >= HORIZONTAL;
+	}
+
+	/**
+	 * Checks if a wall blocks an edge of a path.
+	 *
+	 * @param code
+	 *            the code of the wall.
+	 * @param edges
+	 *            the edges of the path, as marked by
+	 *            DistanceField.pathEdges().
+	 * @return true if the wall blocks one of the edges.
+	 */
+	public static boolean blocks(int code, long[] edges) {
+		boolean horizontal = code < VERTICAL;
+		int slot = code - (horizontal ? HORIZONTAL : VERTICAL);
+		// the lower square of the first edge the wall blocks, for both
+		// directions, see WallBoard.slot()
+		int first = slot / 8 * 9 + slot % 8;
+		int second = first + (horizontal ? 1 : 9);
+		int e = horizontal ? 0 : 2;
+		return WallBoard.test(edges[e], edges[e + 1], first)
+				|| WallBoard.test(edges[e], edges[e + 1], second);
+	}
+
+	/**
+	 * The move of a code. The same Move is returned for the same code.
+	 *
+	 * @param code
+	 *            the code of the move.
+	 * @return the move.
+	 */
+	public static Move toMove(int code) {
+		return MOVES[code];
+	}
+
+	/**
+	 * The code of a move.
+	 *
+	 * @param move
+	 *            the move to encode.
+	 * @return its code, or -1 if the move is outside the board.
+	 */
+	public static int fromMove(Move move) {
+		int x = move.coord().x();
+		int y = move.coord().y();
+		if (move.direction() == MoveType.HORIZONTAL) {
+			return WallBoard.isHorizontalSlot(x, y) ? horizontal(WallBoard.slot(
+					x, y, MoveType.HORIZONTAL)) : -1;
+		} else if (move.direction() == MoveType.VERTICAL) {
+			return WallBoard.isVerticalSlot(x, y) ? vertical(WallBoard.slot(x,
+					y, MoveType.VERTICAL)) : -1;
+		}
+		return x >= 0 && x <= 8 && y >= 1 && y <= 9 ? pawn(WallBoard.square(x,
+				y)) : -1;
+	}
+
+	/**
+	 * The notation of a move, as typed in a Command. Walls are written with
+	 * the coordinates Command converts from, not the ones of their Move.
+	 *
+	 * @param code
+	 *            the code of the move.
+	 * @return the move as a String, for example "e2" or "e3h".
+	 */
+	public static String toString(int code) {
+		Move move = MOVES[code];
+		int x = move.coord().x();
+		int y = move.coord().y();
+		if (move.direction() == MoveType.HORIZONTAL) {
+			return "" + (char) ('a' + x) + (y - 1) + "h";
+		} else if (move.direction() == MoveType.VERTICAL) {
+			return "" + (char) ('a' + x - 1) + y + "v";
+		}
+		return "" + (char) ('a' + x) + y;
+	}
+
+	/**
+	 * Parses a move written as in a Command.
+	 *
+	 * @param notation
+	 *            the move as a String, for example "e2" or "e3h".
+	 * @return the code of the move, or -1 if it is not a move on the board.
+	 */
+	public static int parse(String notation) {
+		if (notation.length() < 2 || notation.length() > 3) {
+			return -1;
+		}
+		int x = notation.charAt(0) - 'a';
+		int y = notation.charAt(1) - '0';
+		if (notation.length() == 2) {
+			return fromMove(new Move(x, y, MoveType.PAWN));
+		} else if (notation.charAt(2) == 'h') {
+			return fromMove(new Move(x, y + 1, MoveType.HORIZONTAL));
+		} else if (notation.charAt(2) == 'v') {
+			return fromMove(new Move(x + 1, y, MoveType.VERTICAL));
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,263 @@
+package quoridor;
+
+import java.util.Arrays;
+
+/**
+ * MoveOrdering sorts the moves of a position of the AI search so that the
+ * ones most likely to cause a cutoff are searched first.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Tries the best move stored for the position first, then the killer
+ * moves of the ply, then the pawn moves along the shortest path, then the
+ * walls blocking the shortest path of the opponent, then the other
+ * moves.</li>
+ * <li>Learns from the cutoffs of the search: the killer moves and the history
+ * table are updated each time a move causes one.</li>
+ * <li>Counts the cutoffs in the SearchStats of its search, with the index and
+ * the tier of the move causing them, so that the quality of the ordering can
+ * be measured.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>Every move gets a score: a tier in the high bits, and its history in the
+ * low bits so that moves of the same tier are ordered by how often they
+ * caused cutoffs.</li>
+ * <li>The scores are kept per ply, and the moves are picked one at a time,
+ * best first, so that nothing is sorted past a cutoff. Once only moves
+ * scoring 0 are left, they are taken as they come.</li>
+ * <li>The shortest paths are read from the distance fields of Game, see
+ * Game.shortestPathEdges(), without any search.</li>
+ * <li>Nothing is allocated while ordering.</li>
+ * </ul>
+ *
+ */
+
+public class MoveOrdering {
+
+	// tiers of the scores, above any history, in the order the moves are
+	// tried
+	static final int HASH_MOVE = 1 << 30;
+	static final int KILLER = 1 << 29;
+	static final int PATH_STEP = 1 << 28;
+	static final int BLOCKING_WALL = 1 << 27;
+	// the history of a move is halved for every move when one gets above it
+	static final int MAX_HISTORY = (1 << 26) - 1;
+
+	// scores of the moves at each ply
+	int[][] scores = new int[0][];
+	// index from which the moves of each ply all score 0, and are searched
+	// in the order they were generated
+	int[] unscored = new int[0];
+	// two killer moves per ply, -1 for none
+	int[] killers = new int[0];
+	// history of each move code, for each player
+	final int[] history = new int[2 * MoveCode.COUNT];
+	// edges of the shortest path of the opponent
+	final long[] edges = new long[4];
+	// changes the order of the moves a little, see AI.startHelpers()
+	int orderShift;
+
+	// statistics of the search the moves are ordered for
+	final SearchStats stats;
+
+	/**
+	 * Creates the move ordering of a search.
+	 *
+	 * @param stats
+	 *            the statistics of the search, which receive the cutoffs.
+	 */
+	public MoveOrdering(SearchStats stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Makes room for the moves of a number of plies, keeping what has been
+	 * learnt.
+	 *
+	 * @param plies
+	 *            the number of plies the search goes to, the root included.
+	 */
+	public void ensurePlies(int plies) {
+		int old = scores.length;
+		if (plies <= old) {
+			return;
+		}
+		scores = Arrays.copyOf(scores, plies);
+		for (int ply = old; ply < plies; ply++) {
+			scores[ply] = new int[Game.MAX_MOVES];
+		}
+		unscored = Arrays.copyOf(unscored, plies);
+		killers = Arrays.copyOf(killers, 2 * plies);
+		Arrays.fill(killers, 2 * old, 2 * plies, -1);
+	}
+
+	/**
+	 * Forgets the killer moves and the history learnt so far.
+	 */
+	public void forget() {
+		Arrays.fill(killers, -1);
+		Arrays.fill(history, 0);
+	}
+
+	/**
+	 * Scores the moves of a position, to be picked with next().
+	 *
+	 * @param g
+	 *            the game being searched, in the position.
+	 * @param moves
+	 *            the codes of the moves of the position.
+	 * @param count
+	 *            the number of moves.
+	 * @param ply
+	 *            the ply of the position in the search.
+	 * @param hashMove
+	 *            the best move stored for the position, or -1.
+	 */
+	public void order(Game g, int[] moves, int count, int ply, int hashMove) {
+		Player player = g.myTurn();
+		int distance = g.distanceToGoal(player);
+		int side = g.index(player) * MoveCode.COUNT;
+		boolean hasWalls = player.wallsLeft() > 0;
+		if (hasWalls) {
+			g.shortestPathEdges(g.players().other(player), edges);
+		}
+		int[] score = scores[ply];
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			int s;
+			if (move == hashMove) {
+				s = HASH_MOVE;
+			} else if (move == killers[2 * ply]) {
+				s = KILLER + 1;
+			} else if (move == killers[2 * ply + 1]) {
+				s = KILLER;
+			} else if (!MoveCode.isWall(move)
+					&& g.distanceToGoal(player, move) < distance) {
+				// a jump can get two steps closer
+				s = PATH_STEP + distance - g.distanceToGoal(player, move);
+			} else {
+				s = history[side + move];
+				if (hasWalls && MoveCode.isWall(move)
+						&& MoveCode.blocks(move, edges)) {
+					s += BLOCKING_WALL;
+				}
+				if (orderShift != 0) {
+					s += ((move + 1) * orderShift * 0x9E3779B9) >>> 26;
+				}
+			}
+			score[i] = s;
+		}
+		unscored[ply] = count;
+	}
+
+	/**
+	 * Picks the best move not searched yet and puts it at an index.
+	 *
+	 * @param moves
+	 *            the codes of the moves, as scored by order().
+	 * @param count
+	 *            the number of moves.
+	 * @param ply
+	 *            the ply of the position in the search.
+	 * @param index
+	 *            the index of the move to search next, the moves before it
+	 *            having been searched.
+	 * @return the code of the move to search.
+	 */
+	public int next(int[] moves, int count, int ply, int index) {
+		if (index >= unscored[ply]) {
+			return moves[index];
+		}
+		int[] score = scores[ply];
+		int best = index;
+		for (int i = index + 1; i < count; i++) {
+			if (score[i] > score[best]) {
+				best = i;
+			}
+		}
+		if (score[best] == 0) {
+			// scores are never negative, the rest is already in order
+			unscored[ply] = index;
+		}
+		int move = moves[best];
+		if (best != index) {
+			moves[best] = moves[index];
+			moves[index] = move;
+			int s = score[best];
+			score[best] = score[index];
+			score[index] = s;
+		}
+		return move;
+	}
+
+	/**
+	 * Sorts all the moves scored by order() in the order next() picks them.
+	 *
+	 * @param moves
+	 *            the codes of the moves.
+	 * @param count
+	 *            the number of moves.
+	 * @param ply
+	 *            the ply of the position in the search.
+	 */
+	public void sort(int[] moves, int count, int ply) {
+		for (int i = 0; i < count; i++) {
+			next(moves, count, ply, i);
+		}
+	}
+
+	/**
+	 * Learns from a move that caused a cutoff: it becomes a killer move of
+	 * the ply and its history grows with the depth it was searched to. The
+	 * cutoff is counted in the statistics of the search.
+	 *
+	 * @param g
+	 *            the game being searched, in the position of the move.
+	 * @param move
+	 *            the code of the move.
+	 * @param ply
+	 *            the ply of the position in the search.
+	 * @param depth
+	 *            the depth the move was searched to.
+	 * @param index
+	 *            the index of the move in the order it was searched.
+	 */
+	public void cutoff(Game g, int move, int ply, int depth, int index) {
+		int s = scores[ply][index];
+		stats.cutoff(index, s >= HASH_MOVE, s >= KILLER && s < HASH_MOVE);
+		if (s >= HASH_MOVE) {
+			return;
+		}
+
+		if (killers[2 * ply] != move) {
+			killers[2 * ply + 1] = killers[2 * ply];
+			killers[2 * ply] = move;
+		}
+		int i = g.index(g.myTurn()) * MoveCode.COUNT + move;
+		history[i] += depth * depth;
+		if (history[i] > MAX_HISTORY) {
+			for (int j = 0; j < history.length; j++) {
+				history[j] /= 2;
+			}
+		}
+	}
+
+	/**
+	 * Checks if a move is a quiet wall: neither the hash move, nor a killer,
+	 * nor blocking the shortest path of the opponent.
+	 *
+	 * @param move
+	 *            the code of the move.
+	 * @param ply
+	 *            the ply of the position in the search.
+	 * @param index
+	 *            the index the move was picked at by next().
+	 * @return true for a quiet wall.
+	 */
+	public boolean isQuiet(int move, int ply, int index) {
+		return MoveCode.isWall(move) && scores[ply][index] < BLOCKING_WALL;
+	}
+
+}
@@ -0,0 +1,101 @@
+package quoridor;
+
+/**
+ * NodePool holds the nodes of a Monte Carlo search tree in arrays allocated
+ * once, so that growing the tree does not allocate.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Stores, for every node, the move leading to it, its children, its
+ * number of visits, the wins of the player who made the move and the prior
+ * of the move.</li>
+ * <li>Is kept by an AIPlayer and reused from one move to the next, emptied
+ * by reset() before each search, so that the memory is allocated once.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>A node is an index in the arrays, the root being node 0.</li>
+ * <li>The children of a node are allocated together, so a node only keeps
+ * the index of its first child and their number.</li>
+ * <li>When the pool is full, nodes are no longer expanded and the search goes
+ * on with the tree it has.</li>
+ * </ul>
+ *
+ */
+
+public class NodePool {
+
+	/**
+	 * Size of a node in bytes.
+	 */
+	public static final int NODE_BYTES = 4 * 6;
+
+	// code of the move leading to each node, see MoveCode
+	final int[] moves;
+	// index of the first child of each node, -1 if it is not expanded
+	final int[] firstChild;
+	final int[] childCount;
+	final int[] visits;
+	// wins of the player who made the move leading to each node
+	final float[] wins;
+	final float[] priors;
+	int size;
+
+	/**
+	 * Creates a pool as big as fits in a memory budget.
+	 *
+	 * @param bytes
+	 *            the memory the pool may use.
+	 */
+	public NodePool(int bytes) {
+		int capacity = Math.max(1 + Game.MAX_MOVES, bytes / NODE_BYTES);
+		moves = new int[capacity];
+		firstChild = new int[capacity];
+		childCount = new int[capacity];
+		visits = new int[capacity];
+		wins = new float[capacity];
+		priors = new float[capacity];
+	}
+
+	/**
+	 * The number of nodes the pool can hold.
+	 *
+	 * @return the capacity of the pool.
+	 */
+	public int capacity() {
+		return moves.length;
+	}
+
+	/**
+	 * Empties the pool and creates the root of a new tree.
+	 */
+	public void reset() {
+		size = 0;
+		allocate(1);
+		moves[0] = -1;
+	}
+
+	/**
+	 * Allocates consecutive nodes, not expanded and never visited.
+	 *
+	 * @param count
+	 *            the number of nodes.
+	 * @return the index of the first node, or -1 if the pool is full.
+	 */
+	public int allocate(int count) {
+		if (size + count > moves.length) {
+			return -1;
+		}
+		int first = size;
+		for (int i = first; i < first + count; i++) {
+			firstChild[i] = -1;
+			childCount[i] = 0;
+			visits[i] = 0;
+			wins[i] = 0;
+		}
+		size += count;
+		return first;
+	}
+
+}
@@ -0,0 +1,176 @@
+package quoridor;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * OpeningBook holds the moves to play in the opening, keyed by the Zobrist
+ * hash of the positions, in a file built by OpeningBookBuilder.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Gives the best known move of a position of the opening, so that the AI
+ * doesn't search the positions where searching costs the most.</li>
+ * <li>Looks moves up in microseconds, without reading the whole file and
+ * without allocating.</li>
+ * <li>Can be opened once and shared by every game and thread.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The file is a header (a magic number and the number of entries)
+ * followed by entries of 16 bytes: the hash of a position, the code of a
+ * move, see MoveCode, and its weight, how good the move was found to
+ * be.</li>
+ * <li>Entries are sorted by hash, then by move, so a position is found by
+ * binary search and its moves are next to each other.</li>
+ * <li>The file is memory mapped: the operating system loads the pages that
+ * are looked up, and shares them between the processes using the book.</li>
+ * <li>Hashes are stable from one run to another, see Zobrist.</li>
+ * </ul>
+ *
+ */
+
+public class OpeningBook {
+
+	static final int MAGIC = 0x514F4231;
+	static final int HEADER_BYTES = 4 + 4;
+	/**
+	 * Size of an entry: the hash, the move and the weight.
+	 */
+	public static final int ENTRY_BYTES = 8 + 4 + 4;
+
+	final MappedByteBuffer buffer;
+	final int size;
+
+	/**
+	 * Opens a book by mapping its file in memory.
+	 *
+	 * @param file
+	 *            the file of the book, written by write().
+	 * @throws IOException
+	 *             if the file can't be read or is not a book.
+	 */
+	public OpeningBook(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			// the mapping stays valid once the file is closed
+			in.close();
+		}
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not an opening book.");
+		}
+		size = buffer.getInt(4);
+		if (buffer.capacity() != HEADER_BYTES + (long) size * ENTRY_BYTES) {
+			throw new IOException(file + " is truncated.");
+		}
+	}
+
+	/**
+	 * The number of entries of the book.
+	 *
+	 * @return the number of entries of the book.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Looks for the move with the highest weight in a position.
+	 *
+	 * @param hash
+	 *            the hash of the position, see Game.hash().
+	 * @return the code of the move, or -1 if the position is not in the book.
+	 */
+	public int probe(long hash) {
+		// the first entry of the position
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (hash(middle) < hash) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int best = -1;
+		int bestWeight = 0;
+		for (int i = low; i < size && hash(i) == hash; i++) {
+			int weight = buffer.getInt(HEADER_BYTES + i * ENTRY_BYTES + 12);
+			if (best < 0 || weight > bestWeight) {
+				best = buffer.getInt(HEADER_BYTES + i * ENTRY_BYTES + 8);
+				bestWeight = weight;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The hash of the position of an entry.
+	 */
+	private long hash(int entry) {
+		return buffer.getLong(HEADER_BYTES + entry * ENTRY_BYTES);
+	}
+
+	/**
+	 * Writes a book to a file.
+	 *
+	 * @param file
+	 *            the file to write.
+	 * @param weights
+	 *            the weight of every move of every position of the book,
+	 *            indexed by hash then by move code. Moves weighing 0 or less
+	 *            are left out.
+	 * @return the number of entries written.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	public static int write(File file, SortedMap<Long, int[]> weights)
+			throws IOException {
+		int size = 0;
+		for (int[] moves : weights.values()) {
+			for (int weight : moves) {
+				if (weight > 0) {
+					size++;
+				}
+			}
+		}
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(size);
+			// a sorted map of Long iterates in the order probe() searches
+			for (Map.Entry<Long, int[]> position : weights.entrySet()) {
+				int[] moves = position.getValue();
+				for (int move = 0; move < moves.length; move++) {
+					if (moves[move] > 0) {
+						out.writeLong(position.getKey());
+						out.writeInt(move);
+						out.writeInt(moves[move]);
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return size + " opening book entries";
+	}
+
+}
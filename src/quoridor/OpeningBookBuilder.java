@@ -0,0 +1,149 @@
+package quoridor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import util.Two;
+
+/**
+ * OpeningBookBuilder is a tool building an OpeningBook from self-play games
+ * between AI players searching deeper than in regular games.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Plays games from the starting position, and remembers the moves played
+ * in their first plies.</li>
+ * <li>Weighs each move by the number of games won by the player who played
+ * it, so that the book plays the moves that won the most.</li>
+ * <li>Writes the book in the sorted binary format of OpeningBook.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The players are AIPlayers with a given search depth. The noise of their
+ * heuristic makes the games differ from one another.</li>
+ * <li>A game is over as soon as the winner of the race is known, see
+ * Game.adjudicate().</li>
+ * <li>Run with: java quoridor.OpeningBookBuilder file games plies depth.</li>
+ * </ul>
+ *
+ */
+
+public class OpeningBookBuilder {
+
+	// a game that is not over after this many plies, or repeating a
+	// position, counts for nobody
+	static final int MAX_PLIES = 300;
+
+	// the weight of every move of every position, see OpeningBook.write()
+	final SortedMap<Long, int[]> weights = new TreeMap<Long, int[]>();
+	// plies of each game that go in the book
+	final int plies;
+	// depth the players search to
+	final int depth;
+	int games;
+
+	/**
+	 * Creates a builder with an empty book.
+	 *
+	 * @param plies
+	 *            the number of plies of each game that go in the book.
+	 * @param depth
+	 *            the depth the players search to.
+	 */
+	public OpeningBookBuilder(int plies, int depth) {
+		this.plies = plies;
+		this.depth = depth;
+	}
+
+	/**
+	 * Builds a book and writes it to a file.
+	 *
+	 * @param args
+	 *            the file, the number of games, the number of plies of each
+	 *            game that go in the book and the depth the players search to.
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args[0]);
+		int games = Integer.parseInt(args[1]);
+		OpeningBookBuilder builder = new OpeningBookBuilder(
+				Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		for (int i = 0; i < games; i++) {
+			builder.playGame();
+		}
+		int size = builder.write(file);
+		System.out.println(size + " moves of " + builder.weights.size()
+				+ " positions from " + builder.games + " games written to "
+				+ file + ".");
+	}
+
+	/**
+	 * Plays a game between two AI players and adds its opening to the book.
+	 *
+	 * @return the winner of the game, or null for a draw.
+	 */
+	public Player playGame() {
+		AIPlayer first = new AIPlayer("Book 1", new float[] { 0.0f, -1f, 1f,
+				1f });
+		AIPlayer second = new AIPlayer("Book 2", new float[] { 0.0f, -1f, 1f,
+				1f });
+		first.searchDepth = depth;
+		second.searchDepth = depth;
+		Game game = new Game(Two.two((Player) first, (Player) second));
+		game.adjudicateRaces = true;
+		game.adjudicateRepetitions = true;
+		game.maxPlies = MAX_PLIES;
+		game.initGame(null);
+
+		long[] hashes = new long[plies];
+		int[] moves = new int[plies];
+		GameEnd end = null;
+		for (int ply = 0; end == null; ply++) {
+			Move move = new AI(game).createMove();
+			if (move == null) {
+				// the player has no move, and loses like in Game.play()
+				end = GameEnd.NO_MOVE;
+				break;
+			}
+			if (ply < plies) {
+				hashes[ply] = game.hash();
+				moves[ply] = MoveCode.fromMove(move);
+			}
+			game.move(move, game.myTurn());
+			end = game.adjudicate();
+		}
+		Player winner = game.winner(end);
+		games++;
+		if (winner == null) {
+			return null;
+		}
+
+		// the first player plays the even plies
+		int winnerPly = winner == first ? 0 : 1;
+		for (int ply = winnerPly; ply < Math.min(plies, game.moves.size()); ply += 2) {
+			int[] position = weights.get(hashes[ply]);
+			if (position == null) {
+				position = new int[MoveCode.COUNT];
+				weights.put(hashes[ply], position);
+			}
+			position[moves[ply]]++;
+		}
+		return winner;
+	}
+
+	/**
+	 * Writes the book built so far to a file.
+	 *
+	 * @param file
+	 *            the file to write.
+	 * @return the number of moves written.
+	 * @throws IOException
+	 *             if the file can't be written.
+	 */
+	public int write(File file) throws IOException {
+		return OpeningBook.write(file, weights);
+	}
+
+}
@@ -0,0 +1,150 @@
+package quoridor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelRootSearch searches the moves at the root of an AI search on the
+ * threads of a ForkJoinPool.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Spreads the root moves over the threads of the pool, each move being
+ * searched by a worker AI on its own copy of the game.</li>
+ * <li>Shares the best score found so far between the workers, as the alpha
+ * bound of the moves they start.</li>
+ * <li>Finds the same move and score as the sequential search of the same
+ * depth, whatever the order the threads end in. It is only used for players
+ * without late move reductions nor transposition table, see
+ * AIPlayer.pool().</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The range of root moves is split in halves until there is one move per
+ * task, and the pool balances the tasks between its threads.</li>
+ * <li>The sequential search plays the first move with the best score. A move
+ * is started with the best exact score of the moves before it as alpha, and
+ * just below the best exact score of the moves after it, so that it only
+ * beats the moves it would also beat sequentially.</li>
+ * <li>A score is exact when it is above the alpha the move was searched with,
+ * only exact scores are shared.</li>
+ * <li>The workers search without late move reductions and forget what their
+ * move ordering learnt before each root move, see AI.takeWorker(), so that
+ * the score of a move does not depend on its alpha bound, nor on the moves
+ * the worker searched before.</li>
+ * </ul>
+ *
+ */
+
+public class ParallelRootSearch extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	final AI parent;
+	final int[] moves;
+	final int from;
+	final int to;
+	// score of each root move, valid where exact is set
+	final float[] scores;
+	final boolean[] exact;
+	// principal variation after each root move, where exact is set
+	final int[][] lines;
+
+	/**
+	 * Searches root moves in parallel.
+	 *
+	 * @param pool
+	 *            the threads to search with.
+	 * @param parent
+	 *            the AI the search is for, which lends the workers.
+	 * @param moves
+	 *            the codes of the root moves, in the order the sequential
+	 *            search would try them.
+	 * @param count
+	 *            the number of root moves.
+	 * @param lines
+	 *            receives the principal variation after each root move whose
+	 *            score is exact, the best one included.
+	 * @return the index of the best move, or -1 if the search was aborted.
+	 */
+	public static int search(ForkJoinPool pool, AI parent, int[] moves,
+			int count, int[][] lines) {
+		ParallelRootSearch root = new ParallelRootSearch(parent, moves, 0,
+				count, new float[count], new boolean[count], lines);
+		pool.invoke(root);
+		if (parent.workersAborted()) {
+			return -1;
+		}
+		int best = -1;
+		for (int i = 0; i < count; i++) {
+			if (root.exact[i] && (best < 0 || root.scores[i] > root.scores[best])) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * A task searching the root moves from index from to index to, excluded.
+	 */
+	ParallelRootSearch(AI parent, int[] moves, int from, int to,
+			float[] scores, boolean[] exact, int[][] lines) {
+		this.parent = parent;
+		this.moves = moves;
+		this.from = from;
+		this.to = to;
+		this.scores = scores;
+		this.exact = exact;
+		this.lines = lines;
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from > 1) {
+			int middle = (from + to) >>> 1;
+			invokeAll(new ParallelRootSearch(parent, moves, from, middle,
+					scores, exact, lines), new ParallelRootSearch(parent,
+					moves, middle, to, scores, exact, lines));
+			return;
+		}
+
+		if (parent.abortWorkers()) {
+			return;
+		}
+		AI worker = parent.takeWorker();
+		float alpha = alpha(from);
+		float score = worker.searchRootMove(moves[from], alpha);
+		boolean aborted = worker.aborted;
+		int[] line = worker.line(1);
+		parent.returnWorker(worker);
+		if (!aborted && score > alpha) {
+			synchronized (exact) {
+				lines[from] = line;
+				scores[from] = score;
+				exact[from] = true;
+			}
+		}
+	}
+
+	/**
+	 * The alpha bound a root move is searched with: a score it has to beat to
+	 * be played instead of the moves already searched.
+	 */
+	private float alpha(int index) {
+		float alpha = Float.NEGATIVE_INFINITY;
+		synchronized (exact) {
+			for (int i = 0; i < exact.length; i++) {
+				if (!exact[i]) {
+					continue;
+				}
+				// an earlier move wins a tie, a later one loses it
+				float bound = i < index ? scores[i] : Math.nextAfter(
+						scores[i], Double.NEGATIVE_INFINITY);
+				alpha = Math.max(alpha, bound);
+			}
+		}
+		return alpha;
+	}
+
+}
@@ -0,0 +1,144 @@
+package quoridor;
+
+/**
+ * PathFinder computes shortest paths from a square to a row of the board,
+ * going around the walls of a WallBoard.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Finds the length of the shortest path from a square to a row.</li>
+ * <li>Finds one shortest path, square by square.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>A breadth first search over the 81 squares, using an int array as the
+ * queue and a bitset spread over two longs for the visited squares.</li>
+ * <li>The queue and the parents of the squares are allocated once, so a search
+ * does not allocate anything.</li>
+ * <li>Neighbours are expanded in the order the game always used: right, left,
+ * previous row, next row.</li>
+ * <li>Pawns do not block paths, only walls do.</li>
+ * </ul>
+ *
+ */
+
+public class PathFinder {
+
+	final WallBoard walls;
+	final int[] queue = new int[81];
+	final int[] parents = new int[81];
+	long visitedLo;
+	long visitedHi;
+	int tail;
+	// depth of the square found by the last search
+	int depth;
+
+	/**
+	 * Creates a path finder for the walls of a board.
+	 *
+	 * @param walls
+	 *            the walls to go around, read at every search.
+	 */
+	public PathFinder(WallBoard walls) {
+		this.walls = walls;
+	}
+
+	/**
+	 * The length of the shortest path from a square to a row.
+	 *
+	 * @param from
+	 *            the square the path starts from.
+	 * @param goalRow
+	 *            the number coordinate of the row to reach.
+	 * @return the number of moves of the shortest path, or -1 if the row can't
+	 *         be reached.
+	 */
+	public int distance(int from, int goalRow) {
+		return search(from, goalRow) < 0 ? -1 : depth;
+	}
+
+	/**
+	 * Finds a shortest path from a square to a row. The path can then be
+	 * followed backwards with parent().
+	 *
+	 * @param from
+	 *            the square the path starts from.
+	 * @param goalRow
+	 *            the number coordinate of the row to reach.
+	 * @return the square where the path ends, or -1 if the row can't be
+	 *         reached.
+	 */
+	public int path(int from, int goalRow) {
+		return search(from, goalRow);
+	}
+
+	/**
+	 * The square before a square on the last path found.
+	 *
+	 * @return the previous square, or -1 for the first square of the path.
+	 */
+	public int parent(int square) {
+		return parents[square];
+	}
+
+	private int search(int from, int goalRow) {
+		visitedLo = 0;
+		visitedHi = 0;
+		tail = 0;
+		depth = 0;
+		visit(from, -1);
+
+		int head = 0;
+		int levelEnd = tail;
+		while (head < tail) {
+			int s = queue[head++];
+			int x = s % 9;
+			int y = s / 9 + 1;
+			if (y == goalRow) {
+				return s;
+			}
+
+			if (x < 8 && !WallBoard.test(walls.vEdgeLo, walls.vEdgeHi, s)) {
+				visit(s + 1, s);
+			}
+			if (x > 0 && !WallBoard.test(walls.vEdgeLo, walls.vEdgeHi, s - 1)) {
+				visit(s - 1, s);
+			}
+			if (y > 1 && !WallBoard.test(walls.hEdgeLo, walls.hEdgeHi, s - 9)) {
+				visit(s - 9, s);
+			}
+			if (y < 9 && !WallBoard.test(walls.hEdgeLo, walls.hEdgeHi, s)) {
+				visit(s + 9, s);
+			}
+
+			if (head == levelEnd) {
+				depth++;
+				levelEnd = tail;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds a square to the queue if it has not been visited yet.
+	 */
+	private void visit(int square, int parent) {
+		if (square < WallBoard.LOW_SQUARES) {
+			long bit = 1L << square;
+			if ((visitedLo & bit) != 0) {
+				return;
+			}
+			visitedLo |= bit;
+		} else {
+			long bit = 1L << (square - WallBoard.LOW_SQUARES);
+			if ((visitedHi & bit) != 0) {
+				return;
+			}
+			visitedHi |= bit;
+		}
+		parents[square] = parent;
+		queue[tail++] = square;
+	}
+
+}
@@ -0,0 +1,180 @@
+package quoridor;
+
+import java.util.LinkedList;
+
+/**
+ * Ponderer lets an AI player search on the time of its opponent: while the
+ * opponent thinks, it predicts the opponent's move and searches the position
+ * it leads to on a background thread.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Predicts the move of the opponent: the answer the last search of the
+ * player expected, or else a step along the shortest path of the
+ * opponent.</li>
+ * <li>On a hit, when the opponent plays the predicted move in the position
+ * pondered on, the player plays the move of the pondering search, which has
+ * been searching for a while already.</li>
+ * <li>On a miss, the search is stopped and the player searches as usual,
+ * with the positions searched while pondering left in its transposition
+ * table.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The pondering search is an AI searching for the player, see
+ * AI.ponder(), on its own copy of the game, so that the game itself is not
+ * touched while the opponent moves.</li>
+ * <li>It searches on a single daemon thread, and is always stopped or waited
+ * for before the game goes on, so the transposition table and the race solver
+ * of the player are never used by two searches at once.</li>
+ * </ul>
+ *
+ */
+
+public class Ponderer implements Runnable {
+
+	final AIPlayer player;
+	final AI ai;
+	// code of the predicted move, see MoveCode
+	final int predicted;
+	// the game and its position when pondering started, see isHit()
+	final Game game;
+	final long hash;
+	final int plies;
+	final Thread thread;
+
+	/**
+	 * Starts pondering for the opponent of the player to move of a game.
+	 *
+	 * @param game
+	 *            the game, with the opponent of the AI player to move.
+	 * @return the ponderer, or null if the AI player doesn't ponder or there
+	 *         is no move to predict.
+	 */
+	public static Ponderer start(Game game) {
+		Player other = game.players().other(game.myTurn());
+		if (!(other instanceof AIPlayer) || !((AIPlayer) other).ponder
+				|| ((AIPlayer) other).engine != AIPlayer.Engine.ALPHA_BETA
+				|| game.isOver()) {
+			return null;
+		}
+		int predicted = predict(game, (AIPlayer) other);
+		if (predicted < 0) {
+			return null;
+		}
+		Ponderer ponderer = new Ponderer(game, (AIPlayer) other, predicted);
+		ponderer.thread.start();
+		return ponderer;
+	}
+
+	/**
+	 * Creates a ponderer, without starting it.
+	 */
+	Ponderer(Game game, AIPlayer player, int predicted) {
+		this.player = player;
+		this.predicted = predicted;
+		this.game = game;
+		this.hash = game.hash();
+		this.plies = game.moves.size();
+		LinkedList<Move> moves = new LinkedList<Move>(game.moves);
+		moves.add(MoveCode.toMove(predicted));
+		ai = new AI(game, player, moves);
+		// a parallel search would keep threads the opponent may need
+		ai.pool = null;
+		ai.lazySmp = false;
+		thread = new Thread(this, player.name() + " pondering");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * The move the opponent is predicted to play.
+	 *
+	 * @param game
+	 *            the game, with the opponent to move.
+	 * @param player
+	 *            the AI player who ponders.
+	 * @return the code of the move, or -1 if the opponent has none.
+	 */
+	static int predict(Game game, AIPlayer player) {
+		int expected = player.ponderMove;
+		if (expected >= 0
+				&& game.isValid(MoveCode.toMove(expected), game.myTurn())) {
+			return expected;
+		}
+		int[] moves = new int[Game.MAX_MOVES];
+		int count = game.generatePawnMoves(moves);
+		int best = -1;
+		for (int i = 0; i < count; i++) {
+			if (best < 0
+					|| game.distanceToGoal(game.myTurn(), moves[i]) < game
+							.distanceToGoal(game.myTurn(), best)) {
+				best = moves[i];
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * The move the opponent is predicted to play.
+	 *
+	 * @return the code of the move, see MoveCode.
+	 */
+	public int predicted() {
+		return predicted;
+	}
+
+	/**
+	 * Checks if the opponent played the predicted move in the position
+	 * pondered on. The opponent may have undone moves before moving, and then
+	 * the same move is played in another position.
+	 */
+	private boolean isHit(Move move) {
+		return move != null && MoveCode.fromMove(move) == predicted
+				&& game.hash() == hash && game.moves.size() == plies;
+	}
+
+	@Override
+	public void run() {
+		ai.ponder();
+	}
+
+	/**
+	 * Ends pondering once the opponent has moved.
+	 *
+	 * @param move
+	 *            the move of the opponent, or null if there was no valid
+	 *            move.
+	 * @return on a hit, the move the player plays after waiting for the
+	 *         pondering search to end. On a miss, null after stopping it.
+	 */
+	public Move finish(Move move) {
+		boolean hit = isHit(move);
+		if (hit) {
+			ai.ponderHit();
+		} else {
+			ai.stopPondering();
+		}
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException ex) {
+				// the search still has to end before the game goes on
+				interrupted = true;
+				ai.stopPondering();
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (!hit) {
+			player.ponderMisses++;
+			return null;
+		}
+		player.ponderHits++;
+		player.expectAnswer(ai.principalVariation());
+		return ai.bestRootMove < 0 ? null : MoveCode.toMove(ai.bestRootMove);
+	}
+
+}
@@ -0,0 +1,279 @@
+package quoridor;
+
+import java.util.Arrays;
+
+/**
+ * RaceSolver finds the exact outcome of a game once walls can no longer
+ * change it: when both players are out of walls, the game is a race of the
+ * pawns around the walls on the board.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Tells, for a position where both players are out of walls, which one
+ * wins with the best play, in how many plies, and with which move.</li>
+ * <li>Also tells the outcome when only one player has walls left, if that
+ * player wins the race anyway: walls can only be placed by choice.</li>
+ * <li>Counts the jumps over the other pawn exactly, with the rules of
+ * Game.generateMoves().</li>
+ * <li>Answers with array lookups, the walls being fixed during the race.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>A state of the race is the square of each pawn and the player to move,
+ * 2 * 81 * 81 states in all, each solved by retrograde analysis: the states
+ * where a pawn is on its goal row are lost for the player to move, then a
+ * state is won if a move leads to a lost state, and lost if all its moves
+ * lead to won states.</li>
+ * <li>States are solved in the order of their plies, going back from the
+ * states where the game is over through the moves leading to them, so the
+ * number of plies of a state is the quickest win or the slowest loss, and
+ * each move is looked at once.</li>
+ * <li>The states never solved are draws, for example with a pawn boxed in
+ * so that it has no move. They are reported as unknown.</li>
+ * <li>The table is kept for the walls it was solved for, and solved again
+ * only when they change.</li>
+ * </ul>
+ *
+ */
+
+public class RaceSolver {
+
+	/**
+	 * Result of probe() when the outcome is not known.
+	 */
+	public static final int UNKNOWN = 0;
+
+	static final int STATES = 2 * 81 * 81;
+	// outcomes of the states, for the player to move
+	static final byte WIN = 1;
+	static final byte LOSS = 2;
+
+	// the walls and goal rows the states were solved for
+	long hWalls;
+	long vWalls;
+	int goal1;
+	int goal2;
+	boolean solved;
+
+	final byte[] outcomes = new byte[STATES];
+	// plies to the end of the game with the best play
+	final short[] plies = new short[STATES];
+	// the states each state leads to, from childStart[state] on
+	final int[] childStart = new int[STATES + 1];
+	int[] children = new int[STATES * 4];
+	// the states leading to each state, from parentStart[state] on
+	final int[] parentStart = new int[STATES + 1];
+	int[] parents = new int[STATES * 4];
+	// moves of each state not known to lead to a won state yet
+	final int[] unsolved = new int[STATES];
+	final int[] queue = new int[STATES];
+	final int[] buffer = new int[Game.MAX_MOVES];
+
+	// statistics
+	long solves;
+	long solveNanos;
+
+	/**
+	 * The index of a state of the race.
+	 *
+	 * @param side
+	 *            the index of the player to move, see Game.index().
+	 * @param pawn1
+	 *            the square of the pawn of the first player.
+	 * @param pawn2
+	 *            the square of the pawn of the second player.
+	 */
+	static int state(int side, int pawn1, int pawn2) {
+		return (side * 81 + pawn1) * 81 + pawn2;
+	}
+
+	/**
+	 * Solves the race of a game if needed, and gives its outcome.
+	 *
+	 * @param g
+	 *            the game, at least one player being out of walls.
+	 * @return UNKNOWN, or the outcome of the game, see probe().
+	 */
+	public int solve(Game g) {
+		if (!isSolvedFor(g)) {
+			solve(g, g.distanceFields[0].goalRow, g.distanceFields[1].goalRow);
+		}
+		return probe(g);
+	}
+
+	/**
+	 * Gives the outcome of a game if it is known without searching: the walls
+	 * of the game are the ones the race was solved for, and either both
+	 * players are out of walls, or the one with walls wins the race.
+	 *
+	 * @param g
+	 *            the game.
+	 * @return UNKNOWN, a positive number n if the player to move wins or a
+	 *         negative number -n if the player to move loses, in n - 1 plies
+	 *         with the best play.
+	 */
+	public int probe(Game g) {
+		Player p1 = g.players()._1();
+		Player p2 = g.players()._2();
+		if ((p1.wallsLeft() > 0 && p2.wallsLeft() > 0) || !isSolvedFor(g)) {
+			return UNKNOWN;
+		}
+		int side = g.index(g.myTurn());
+		int state = state(side, g.pawnSquare(p1), g.pawnSquare(p2));
+		byte outcome = outcomes[state];
+		if (outcome == 0) {
+			return UNKNOWN;
+		}
+		if (p1.wallsLeft() > 0 || p2.wallsLeft() > 0) {
+			// only the player with walls can be sure of winning
+			int withWalls = p1.wallsLeft() > 0 ? 0 : 1;
+			if ((outcome == WIN) != (side == withWalls)) {
+				return UNKNOWN;
+			}
+		}
+		return outcome == WIN ? plies[state] + 1 : -plies[state] - 1;
+	}
+
+	/**
+	 * The best pawn move of the race of a game: the quickest win, or the
+	 * slowest loss.
+	 *
+	 * @param g
+	 *            the game, whose outcome probe() knows.
+	 * @return the code of the move, or -1 if there is none.
+	 */
+	public int bestMove(Game g) {
+		int side = g.index(g.myTurn());
+		int state = state(side, g.pawnSquare(g.players()._1()),
+				g.pawnSquare(g.players()._2()));
+		boolean win = outcomes[state] == WIN;
+		int best = -1;
+		int bestPlies = 0;
+		for (int i = childStart[state]; i < childStart[state + 1]; i++) {
+			int child = children[i];
+			int p = plies[child];
+			if (win ? outcomes[child] == LOSS && (best < 0 || p < bestPlies)
+					: outcomes[child] == WIN && (best < 0 || p > bestPlies)) {
+				best = child;
+				bestPlies = p;
+			}
+		}
+		if (best < 0) {
+			return -1;
+		}
+		// the square the pawn of the player to move is on in the child state
+		return MoveCode.pawn(side == 0 ? best / 81 % 81 : best % 81);
+	}
+
+	/**
+	 * Checks if the race was solved for the walls and the goals of a game.
+	 */
+	private boolean isSolvedFor(Game g) {
+		return solved && hWalls == g.wallBoard.hWalls
+				&& vWalls == g.wallBoard.vWalls
+				&& goal1 == g.distanceFields[0].goalRow
+				&& goal2 == g.distanceFields[1].goalRow;
+	}
+
+	/**
+	 * Solves every state of the race around the walls of a game, from the
+	 * states where the game is over back to the others, in the order of their
+	 * plies.
+	 */
+	private void solve(Game g, int goal1, int goal2) {
+		long start = System.nanoTime();
+		Arrays.fill(outcomes, (byte) 0);
+		int head = 0;
+		int tail = 0;
+
+		// the moves of every state, and the states where the game is over
+		int size = 0;
+		for (int state = 0; state < STATES; state++) {
+			childStart[state] = size;
+			int side = state / (81 * 81);
+			int pawn1 = state / 81 % 81;
+			int pawn2 = state % 81;
+			boolean won1 = pawn1 / 9 + 1 == goal1;
+			boolean won2 = pawn2 / 9 + 1 == goal2;
+			if (pawn1 == pawn2 || (won1 && won2)) {
+				continue;
+			}
+			if (won1 || won2) {
+				outcomes[state] = won1 == (side == 0) ? WIN : LOSS;
+				plies[state] = 0;
+				queue[tail++] = state;
+				continue;
+			}
+			int count = side == 0 ? g.generatePawnMoves(pawn1, pawn2, buffer)
+					: g.generatePawnMoves(pawn2, pawn1, buffer);
+			if (size + count > children.length) {
+				children = Arrays.copyOf(children, children.length * 2);
+			}
+			for (int i = 0; i < count; i++) {
+				children[size++] = side == 0 ? state(1, buffer[i], pawn2)
+						: state(0, pawn1, buffer[i]);
+			}
+		}
+		childStart[STATES] = size;
+
+		// the states leading to every state, grouped by counting them
+		Arrays.fill(parentStart, 0);
+		for (int i = 0; i < size; i++) {
+			parentStart[children[i] + 1]++;
+		}
+		for (int state = 0; state < STATES; state++) {
+			parentStart[state + 1] += parentStart[state];
+			unsolved[state] = parentStart[state];
+		}
+		if (parents.length < size) {
+			parents = new int[children.length];
+		}
+		for (int state = 0; state < STATES; state++) {
+			for (int i = childStart[state]; i < childStart[state + 1]; i++) {
+				parents[unsolved[children[i]]++] = state;
+			}
+		}
+		for (int state = 0; state < STATES; state++) {
+			unsolved[state] = childStart[state + 1] - childStart[state];
+		}
+
+		// states are queued in the order of their plies: a state is won by the
+		// first lost state it leads to, and lost by the last won one
+		while (head < tail) {
+			int state = queue[head++];
+			boolean lost = outcomes[state] == LOSS;
+			for (int i = parentStart[state]; i < parentStart[state + 1]; i++) {
+				int parent = parents[i];
+				if (outcomes[parent] != 0) {
+					continue;
+				}
+				if (lost) {
+					outcomes[parent] = WIN;
+				} else if (--unsolved[parent] == 0) {
+					outcomes[parent] = LOSS;
+				} else {
+					continue;
+				}
+				plies[parent] = (short) (plies[state] + 1);
+				queue[tail++] = parent;
+			}
+		}
+
+		hWalls = g.wallBoard.hWalls;
+		vWalls = g.wallBoard.vWalls;
+		this.goal1 = goal1;
+		this.goal2 = goal2;
+		solved = true;
+		solves++;
+		solveNanos += System.nanoTime() - start;
+	}
+
+	@Override
+	public String toString() {
+		return solves + " races solved, "
+				+ (solves == 0 ? 0 : solveNanos / solves / 1000)
+				+ " microseconds each";
+	}
+
+}
@@ -0,0 +1,391 @@
+package quoridor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * SearchStats holds what an AI search did to find a move, so that a slow or
+ * bad move can be explained.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Counts the nodes searched, the positions evaluated by the heuristic,
+ * the cutoffs by index of the move causing them, and the probes and hits of
+ * the transposition table.</li>
+ * <li>Tells how well the moves were ordered, see MoveOrdering: the rate of
+ * cutoffs caused by the first move, by the hash move and by a killer move,
+ * and the moves searched before a cutoff.</li>
+ * <li>With more than one thread, tells the nodes and time of the same search
+ * on one thread, and the speedup, see AIPlayer.measureSpeedup.</li>
+ * <li>Tells the time spent updating the shortest paths, finding the legal
+ * walls, generating the moves, copying the game and evaluating the leaves,
+ * and the bytes allocated.</li>
+ * <li>Is cheap enough to be always on, and is written as one JSON line per
+ * move.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>Every AI, workers and helpers included, counts in its own SearchStats,
+ * and the ones of the workers and helpers are added to the one of the AI
+ * they search for at the end of the move. Their times add up too, so they
+ * can be more than the time of the move.</li>
+ * <li>Reading the clock costs about as much as a small node, so only one node
+ * in TIMING_RATE is timed, and its times are counted TIMING_RATE times: the
+ * times are estimates, the counts are exact.</li>
+ * <li>Allocated bytes are read from the ThreadMXBean when the JVM supports it,
+ * through a method looked up by name, for the thread the move was searched
+ * on only.</li>
+ * </ul>
+ *
+ */
+
+public class SearchStats {
+
+	/**
+	 * One node in this many is timed.
+	 */
+	public static final int TIMING_RATE = 16;
+
+	/**
+	 * Cutoffs are counted by index of the move causing them, the last index
+	 * counting the cutoffs from this index on.
+	 */
+	public static final int CUTOFF_INDEXES = 8;
+
+	// tells the bytes a thread allocated, null if the JVM doesn't
+	private static final Method ALLOCATED_BYTES = allocatedBytesMethod();
+
+	// code of the move played, -1 for none
+	int move = -1;
+	// where the move comes from: a search, the opening book or a race
+	String source = "search";
+	int depth;
+	long millis;
+
+	long nodes;
+	// positions evaluated by the heuristic
+	long leaves;
+	final long[] cutoffs = new long[CUTOFF_INDEXES];
+	// cutoffs caused by the hash move and by a killer move, and the sum of
+	// the number of moves searched before each cutoff
+	long hashMoveCutoffs;
+	long killerCutoffs;
+	long movesBeforeCutoffs;
+	long tableProbes;
+	long tableHits;
+
+	// estimated nanoseconds updating the distance fields when walls are
+	// placed, finding the legal walls and generating the moves
+	long pathNanos;
+	long wallNanos;
+	long moveGenNanos;
+	// nanoseconds copying the game for the search, see AI.createTempGame()
+	long tempGameNanos;
+	// estimated nanoseconds evaluating the leaves, see CompiledEvaluator
+	long evaluationNanos;
+	// bytes allocated by the thread of the search, -1 if unknown
+	long allocatedBytes = -1;
+	// nodes and milliseconds of the same search on one thread, -1 if it was
+	// not measured
+	long baselineNodes = -1;
+	long baselineMillis = -1;
+
+	/**
+	 * Counts a cutoff.
+	 *
+	 * @param index
+	 *            the index of the move causing it, in the order the moves
+	 *            were searched.
+	 * @param hashMove
+	 *            true if the move was the hash move.
+	 * @param killer
+	 *            true if the move was a killer move.
+	 */
+	void cutoff(int index, boolean hashMove, boolean killer) {
+		cutoffs[Math.min(index, CUTOFF_INDEXES - 1)]++;
+		movesBeforeCutoffs += index;
+		if (hashMove) {
+			hashMoveCutoffs++;
+		}
+		if (killer) {
+			killerCutoffs++;
+		}
+	}
+
+	/**
+	 * Forgets the statistics of the last move, for an AI searching another
+	 * one.
+	 */
+	void reset() {
+		move = -1;
+		source = "search";
+		depth = 0;
+		millis = 0;
+		nodes = 0;
+		leaves = 0;
+		Arrays.fill(cutoffs, 0);
+		hashMoveCutoffs = 0;
+		killerCutoffs = 0;
+		movesBeforeCutoffs = 0;
+		tableProbes = 0;
+		tableHits = 0;
+		pathNanos = 0;
+		wallNanos = 0;
+		moveGenNanos = 0;
+		tempGameNanos = 0;
+		evaluationNanos = 0;
+		allocatedBytes = -1;
+		baselineNodes = -1;
+		baselineMillis = -1;
+	}
+
+	/**
+	 * Records what the same search did on one thread, to compare with this
+	 * one.
+	 *
+	 * @param nodes
+	 *            the nodes searched on one thread.
+	 * @param millis
+	 *            the time it took.
+	 */
+	void baseline(long nodes, long millis) {
+		baselineNodes = nodes;
+		baselineMillis = millis;
+	}
+
+	/**
+	 * Adds the counts and times of another search, a worker or a helper of
+	 * this one.
+	 *
+	 * @param other
+	 *            the statistics to add.
+	 */
+	void add(SearchStats other) {
+		nodes += other.nodes;
+		leaves += other.leaves;
+		for (int i = 0; i < CUTOFF_INDEXES; i++) {
+			cutoffs[i] += other.cutoffs[i];
+		}
+		hashMoveCutoffs += other.hashMoveCutoffs;
+		killerCutoffs += other.killerCutoffs;
+		movesBeforeCutoffs += other.movesBeforeCutoffs;
+		tableProbes += other.tableProbes;
+		tableHits += other.tableHits;
+		pathNanos += other.pathNanos;
+		wallNanos += other.wallNanos;
+		moveGenNanos += other.moveGenNanos;
+		tempGameNanos += other.tempGameNanos;
+		evaluationNanos += other.evaluationNanos;
+	}
+
+	/**
+	 * The bytes the current thread allocated since it started.
+	 *
+	 * @return the bytes, or -1 if the JVM doesn't tell.
+	 */
+	static long threadAllocatedBytes() {
+		if (ALLOCATED_BYTES == null) {
+			return -1;
+		}
+		try {
+			return (Long) ALLOCATED_BYTES.invoke(
+					ManagementFactory.getThreadMXBean(), Thread.currentThread()
+							.getId());
+		} catch (ReflectiveOperationException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Finds the method of the ThreadMXBean of the JVM telling the bytes a
+	 * thread allocated. It is looked up by name, so that a JVM without
+	 * com.sun.management still loads this class.
+	 *
+	 * @return the method, or null if the JVM has none or doesn't count.
+	 */
+	private static Method allocatedBytesMethod() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			Class<?> sun = Class.forName("com.sun.management.ThreadMXBean");
+			if (!sun.isInstance(bean)
+					|| !(Boolean) sun.getMethod(
+							"isThreadAllocatedMemorySupported").invoke(bean)
+					|| !(Boolean) sun.getMethod(
+							"isThreadAllocatedMemoryEnabled").invoke(bean)) {
+				return null;
+			}
+			return sun.getMethod("getThreadAllocatedBytes", long.class);
+		} catch (ReflectiveOperationException ex) {
+			return null;
+		} catch (LinkageError ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * The code of the move played.
+	 *
+	 * @return the code, see MoveCode, or -1 for none.
+	 */
+	public int move() {
+		return move;
+	}
+
+	/**
+	 * The number of nodes searched, by this AI and its workers and helpers.
+	 *
+	 * @return the number of nodes.
+	 */
+	public long nodes() {
+		return nodes;
+	}
+
+	/**
+	 * The number of cutoffs caused by the move searched at an index.
+	 *
+	 * @param index
+	 *            the index, the last one counting the cutoffs from there on.
+	 * @return the number of cutoffs.
+	 */
+	public long cutoffs(int index) {
+		return cutoffs[index];
+	}
+
+	/**
+	 * The number of cutoffs, whatever the move causing them.
+	 *
+	 * @return the number of cutoffs.
+	 */
+	public long cutoffs() {
+		long sum = 0;
+		for (int i = 0; i < CUTOFF_INDEXES; i++) {
+			sum += cutoffs[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * The proportion of cutoffs caused by the first move searched.
+	 *
+	 * @return the rate, between 0 and 1.
+	 */
+	public float firstMoveRate() {
+		long sum = cutoffs();
+		return sum == 0 ? 0 : (float) cutoffs[0] / sum;
+	}
+
+	/**
+	 * The proportion of cutoffs caused by the hash move.
+	 *
+	 * @return the rate, between 0 and 1.
+	 */
+	public float hashMoveRate() {
+		long sum = cutoffs();
+		return sum == 0 ? 0 : (float) hashMoveCutoffs / sum;
+	}
+
+	/**
+	 * The proportion of cutoffs caused by a killer move.
+	 *
+	 * @return the rate, between 0 and 1.
+	 */
+	public float killerRate() {
+		long sum = cutoffs();
+		return sum == 0 ? 0 : (float) killerCutoffs / sum;
+	}
+
+	/**
+	 * The average number of moves searched at a node before the one causing
+	 * its cutoff.
+	 *
+	 * @return the number of moves, 0 if there was no cutoff.
+	 */
+	public float movesBeforeCutoff() {
+		long sum = cutoffs();
+		return sum == 0 ? 0 : (float) movesBeforeCutoffs / sum;
+	}
+
+	/**
+	 * How many times faster the search was than on one thread.
+	 *
+	 * @return the time on one thread over the time of the search, or 0 if
+	 *         the search was not done on one thread too.
+	 */
+	public float speedup() {
+		if (baselineMillis < 0) {
+			return 0;
+		}
+		return (float) Math.max(baselineMillis, 1) / Math.max(millis, 1);
+	}
+
+	/**
+	 * How many more nodes the search searched than on one thread.
+	 *
+	 * @return the nodes over the nodes on one thread, or 0 if the search was
+	 *         not done on one thread too.
+	 */
+	public float nodeRatio() {
+		if (baselineNodes <= 0) {
+			return 0;
+		}
+		return (float) nodes / baselineNodes;
+	}
+
+	/**
+	 * The throughput of the heuristic: the leaves evaluated per second spent
+	 * evaluating them.
+	 * 
+	 * @return the evaluations per second, or 0 if none was timed.
+	 */
+	public long evaluationsPerSecond() {
+		return evaluationNanos == 0 ? 0 : leaves * 1000000000L
+				/ evaluationNanos;
+	}
+
+	/**
+	 * The statistics as a JSON object on one line.
+	 *
+	 * @return the JSON line, without line separator.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder(640);
+		json.append("{\"move\":\"")
+				.append(move < 0 ? "" : MoveCode.toString(move))
+				.append("\",\"source\":\"").append(source)
+				.append("\",\"depth\":").append(depth).append(",\"millis\":")
+				.append(millis).append(",\"nodes\":").append(nodes)
+				.append(",\"leaves\":").append(leaves)
+				.append(",\"cutoffsByIndex\":[");
+		for (int i = 0; i < CUTOFF_INDEXES; i++) {
+			json.append(i == 0 ? "" : ",").append(cutoffs[i]);
+		}
+		json.append("],\"firstMoveCutoffRate\":").append(firstMoveRate())
+				.append(",\"hashMoveCutoffRate\":").append(hashMoveRate())
+				.append(",\"killerCutoffRate\":").append(killerRate())
+				.append(",\"movesBeforeCutoff\":").append(movesBeforeCutoff())
+				.append(",\"ttProbes\":").append(tableProbes)
+				.append(",\"ttHits\":").append(tableHits)
+				.append(",\"pathMicros\":").append(pathNanos / 1000)
+				.append(",\"wallMicros\":").append(wallNanos / 1000)
+				.append(",\"moveGenMicros\":").append(moveGenNanos / 1000)
+				.append(",\"tempGameMicros\":").append(tempGameNanos / 1000)
+				.append(",\"evalMicros\":").append(evaluationNanos / 1000)
+				.append(",\"evalsPerSecond\":").append(evaluationsPerSecond())
+				.append(",\"allocatedBytes\":").append(allocatedBytes)
+				.append(",\"baselineNodes\":").append(baselineNodes)
+				.append(",\"baselineMillis\":").append(baselineMillis)
+				.append(",\"speedup\":").append(speedup())
+				.append(",\"nodeRatio\":").append(nodeRatio())
+				.append('}');
+		return json.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toJson();
+	}
+
+}
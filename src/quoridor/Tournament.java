@@ -0,0 +1,234 @@
+package quoridor;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tournament plays the round robin of a generation of the genetic algorithm
+ * of GameFactory: every subject plays every other one, once as each player.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Plays the games on the threads of a ForkJoinPool, as many at once as
+ * it has threads.</li>
+ * <li>Gives the same fitness to the subjects whatever the number of threads
+ * and the order the games end in.</li>
+ * <li>Reports its progress, and how many games it plays per second.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>Each game is a task returning its result. The fitness is only counted
+ * once every game is over, from the results in the order of the games, so
+ * that no two threads count at once.</li>
+ * <li>The players of each game get a noise seed drawn from the seed of the
+ * tournament and the index of the game, see AIPlayer.noiseSeed, so that a
+ * game is played the same whichever thread plays it and when.</li>
+ * <li>The games are played by a MatchRunner, which prints nothing and ends
+ * them as soon as the winner of the race is known, or as a draw on a
+ * repetition or after too many plies, so that a generation always ends. Each
+ * thread keeps its runner, and with it the transposition tables, for all the
+ * games it plays.</li>
+ * </ul>
+ *
+ */
+
+public class Tournament {
+
+	final Subject[] subjects;
+	final long seed;
+	final int threads;
+	// where the progress is printed, null for nowhere
+	PrintStream progress = System.out;
+
+	// winner of each game, 1, 2 or 0, by index of the game, see game()
+	int[] results;
+	final AtomicInteger played = new AtomicInteger();
+	long start;
+	long millis;
+	// the runner of the games of each thread
+	final ThreadLocal<MatchRunner> runners = new ThreadLocal<MatchRunner>() {
+		@Override
+		protected MatchRunner initialValue() {
+			return new MatchRunner();
+		}
+	};
+
+	/**
+	 * Creates a tournament.
+	 *
+	 * @param subjects
+	 *            the subjects playing.
+	 * @param seed
+	 *            the seed of the noise of the players.
+	 * @param threads
+	 *            the number of games played at once.
+	 */
+	public Tournament(Subject[] subjects, long seed, int threads) {
+		this.subjects = subjects;
+		this.seed = seed;
+		this.threads = threads;
+	}
+
+	/**
+	 * Plays every game and sets the fitness of the subjects to the number of
+	 * games they won.
+	 *
+	 * @return the subjects.
+	 */
+	public Subject[] play() {
+		final int n = subjects.length;
+		List<Callable<Integer>> games = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i == j) {
+					continue;
+				}
+				final int one = i;
+				final int two = j;
+				games.add(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						int winner = game(one, two);
+						progress(played.incrementAndGet());
+						return winner;
+					}
+				});
+			}
+		}
+
+		start = System.currentTimeMillis();
+		played.set(0);
+		results = new int[games.size()];
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			List<Future<Integer>> futures = pool.invokeAll(games);
+			for (int i = 0; i < results.length; i++) {
+				results[i] = futures.get(i).get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The tournament was interrupted.",
+					ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("A game of the tournament failed.",
+					ex.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		millis = System.currentTimeMillis() - start;
+
+		for (Subject s : subjects) {
+			s.fitnessFunction = 0;
+		}
+		int index = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i == j) {
+					continue;
+				}
+				// a draw counts for nobody
+				int winner = results[index++];
+				if (winner == 1) {
+					subjects[i].fitnessFunction++;
+				} else if (winner == 2) {
+					subjects[j].fitnessFunction++;
+				}
+			}
+		}
+		if (progress != null) {
+			progress.println(String.format(
+					"%d games played in %d ms, %.2f per second on %d threads.",
+					results.length, millis, gamesPerSecond(), threads));
+		}
+		return subjects;
+	}
+
+	/**
+	 * Plays a game between two subjects.
+	 *
+	 * @param one
+	 *            the index of the subject playing first.
+	 * @param two
+	 *            the index of the subject playing second.
+	 * @return 1 if the first one won, 2 if the second one did, 0 if nobody
+	 *         did.
+	 */
+	int game(int one, int two) {
+		EngineConfig first = new EngineConfig("Computer 1",
+				subjects[one].weights);
+		EngineConfig second = new EngineConfig("Computer 2",
+				subjects[two].weights);
+		long game = (long) one * subjects.length + two;
+		first.noiseSeed = mix(seed + 2 * game);
+		second.noiseSeed = mix(seed + 2 * game + 1);
+		first.openingBook = GameFactory.openingBook();
+		second.openingBook = first.openingBook;
+		return runners.get().play(first, second).winner();
+	}
+
+	/**
+	 * Mixes the bits of a number, so that close numbers give unrelated
+	 * seeds.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Prints the progress every twentieth of the games.
+	 */
+	private void progress(int done) {
+		int total = subjects.length * (subjects.length - 1);
+		if (progress != null && done % Math.max(1, total / 20) == 0) {
+			long elapsed = Math.max(1, System.currentTimeMillis() - start);
+			progress.println(String.format(
+					"%d/%d games played, %.2f per second.", done, total,
+					done * 1000.0 / elapsed));
+		}
+	}
+
+	/**
+	 * The number of games the last call to play() played per second.
+	 *
+	 * @return the games per second.
+	 */
+	public double gamesPerSecond() {
+		return results == null ? 0 : results.length * 1000.0
+				/ Math.max(1, millis);
+	}
+
+	/**
+	 * The fitness the last call to play() gave to a subject.
+	 *
+	 * @param subject
+	 *            the index of the subject.
+	 * @return the number of games the subject won.
+	 */
+	public int fitness(int subject) {
+		return subjects[subject].fitnessFunction;
+	}
+
+	/**
+	 * The result of a game of the last call to play().
+	 *
+	 * @param one
+	 *            the index of the subject who played first.
+	 * @param two
+	 *            the index of the subject who played second.
+	 * @return 1 if the first one won, 2 if the second one did, 0 for a draw.
+	 */
+	public int result(int one, int two) {
+		int index = one * (subjects.length - 1) + (two < one ? two : two - 1);
+		return results[index];
+	}
+
+}
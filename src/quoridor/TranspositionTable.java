@@ -0,0 +1,223 @@
+package quoridor;
+
+import java.util.Arrays;
+
+/**
+ * TranspositionTable remembers the results of the alpha-beta search for the
+ * positions it has already searched, keyed by their Zobrist hash.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Stores, for a position, the depth it was searched to, the kind of bound
+ * the score is, the score and the best move found.</li>
+ * <li>Lets the search skip positions reached again through another order of
+ * moves, and try the best move first otherwise.</li>
+ * <li>Counts probes and hits so that its size can be tuned.</li>
+ * <li>Can be shared by the threads of a parallel search.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The table has a fixed, power of two number of entries derived from a
+ * memory budget, and a position goes in the entry given by the low bits of its
+ * hash.</li>
+ * <li>An entry is two longs: the data (score, depth, bound, best move and
+ * search age packed together) and the key xor the data. Probing and storing
+ * do not allocate.</li>
+ * <li>The table can be shared by threads without locks: an entry being
+ * written by another thread at the same time has a key and data that do not
+ * match, so it is taken as missing. Probes return the data as one long, so
+ * that it can't change while it is read.</li>
+ * <li>A new entry replaces the stored one if it is from an earlier search, is
+ * for the same position, or was searched at least as deep.</li>
+ * </ul>
+ *
+ */
+
+public class TranspositionTable {
+
+	/**
+	 * The score is the exact value of the position.
+	 */
+	public static final byte EXACT = 0;
+	/**
+	 * The score is a lower bound (the search failed high).
+	 */
+	public static final byte LOWER = 1;
+	/**
+	 * The score is an upper bound (the search failed low).
+	 */
+	public static final byte UPPER = 2;
+
+	/**
+	 * Size of an entry: the key xor the data, and the data.
+	 */
+	public static final int ENTRY_BYTES = 8 + 8;
+
+	// layout of the data: score bits, then depth, bound, move + 1 and age
+	static final int DEPTH_SHIFT = 32;
+	static final int BOUND_SHIFT = 40;
+	static final int MOVE_SHIFT = 42;
+	static final int AGE_SHIFT = 51;
+
+	// key xor data of each entry
+	final long[] keys;
+	// data of each entry, 0 for an empty entry (the age is never 0)
+	final long[] datas;
+	final int mask;
+	volatile int age = 1;
+
+	// statistics, only approximate when the table is shared by threads
+	long probes;
+	long hits;
+	long stores;
+
+	/**
+	 * Creates a table as big as fits in a memory budget.
+	 *
+	 * @param bytes
+	 *            the memory the table may use.
+	 */
+	public TranspositionTable(int bytes) {
+		int size = Integer.highestOneBit(Math.max(1, bytes / ENTRY_BYTES));
+		keys = new long[size];
+		datas = new long[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * The number of entries of the table.
+	 *
+	 * @return the number of entries of the table.
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Tells the table a new search begins, so that the entries of the previous
+	 * ones are replaced first.
+	 */
+	public void newSearch() {
+		int next = (age + 1) & 0xFF;
+		age = next == 0 ? 1 : next;
+	}
+
+	/**
+	 * Empties the table, so that a search does not find the positions of
+	 * another game, see MatchRunner.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(datas, 0);
+		age = 1;
+		probes = 0;
+		hits = 0;
+		stores = 0;
+	}
+
+	/**
+	 * Looks for a position in the table.
+	 *
+	 * @param key
+	 *            the hash of the position.
+	 * @return the entry of the position, to be read with depth(), bound(),
+	 *         score() and move(), or 0 if it is not in the table.
+	 */
+	public long probe(long key) {
+		probes++;
+		int i = (int) key & mask;
+		long data = datas[i];
+		if (data != 0 && (keys[i] ^ data) == key) {
+			hits++;
+			return data;
+		}
+		return 0;
+	}
+
+	/**
+	 * The depth an entry was searched to.
+	 */
+	public int depth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * The kind of bound the score of an entry is: EXACT, LOWER or UPPER.
+	 */
+	public byte bound(long entry) {
+		return (byte) ((entry >>> BOUND_SHIFT) & 3);
+	}
+
+	/**
+	 * The score of an entry.
+	 */
+	public float score(long entry) {
+		return Float.intBitsToFloat((int) entry);
+	}
+
+	/**
+	 * The code of the best move of an entry, or -1 if none was found.
+	 */
+	public int move(long entry) {
+		return (int) ((entry >>> MOVE_SHIFT) & 0x1FF) - 1;
+	}
+
+	/**
+	 * Stores the result of the search of a position.
+	 *
+	 * @param key
+	 *            the hash of the position.
+	 * @param depth
+	 *            the depth the position was searched to.
+	 * @param bound
+	 *            EXACT, LOWER or UPPER.
+	 * @param score
+	 *            the score found by the search.
+	 * @param move
+	 *            the code of the best move found by the search, or -1.
+	 */
+	public void store(long key, int depth, byte bound, float score, int move) {
+		int i = (int) key & mask;
+		int age = this.age;
+		long old = datas[i];
+		boolean samePosition = old != 0 && (keys[i] ^ old) == key;
+		if (old != 0 && !samePosition && age(old) == age
+				&& depth(old) > depth) {
+			return;
+		}
+		if (move < 0 && samePosition) {
+			move = move(old);
+		}
+		long data = (Float.floatToRawIntBits(score) & 0xFFFFFFFFL)
+				| (long) depth << DEPTH_SHIFT | (long) bound << BOUND_SHIFT
+				| (long) (move + 1) << MOVE_SHIFT | (long) age << AGE_SHIFT;
+		stores++;
+		datas[i] = data;
+		keys[i] = key ^ data;
+	}
+
+	/**
+	 * The search an entry was stored in.
+	 */
+	private int age(long entry) {
+		return (int) (entry >>> AGE_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * The proportion of probes that found their position.
+	 *
+	 * @return the hit rate, between 0 and 1.
+	 */
+	public float hitRate() {
+		return probes == 0 ? 0 : (float) hits / probes;
+	}
+
+	@Override
+	public String toString() {
+		return size() + " entries, " + probes + " probes, " + hits + " hits ("
+				+ Math.round(hitRate() * 1000) / 10f + "%), " + stores
+				+ " stores";
+	}
+
+}
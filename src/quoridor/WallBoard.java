@@ -0,0 +1,385 @@
+package quoridor;
+
+import quoridor.Move.MoveType;
+
+/**
+ * WallBoard stores the walls placed on the board as bitboards, so that every
+ * wall query is a mask test instead of a walk through the list of walls.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Stores the wall slots used on the board.</li>
+ * <li>Stores the edges between squares that those walls are blocking.</li>
+ * <li>Answers wall queries in constant time.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>There are 64 horizontal and 64 vertical wall slots, so each direction
+ * fits in one long. A horizontal wall at (x,y) uses bit (y-2)*8+x, a vertical
+ * wall at (x,y) uses bit (y-1)*8+(x-1), with the coordinates of a Move.</li>
+ * <li>Square (x,y) has index (y-1)*9+x. Blocked edges are stored per square
+ * over two longs: rows 1 to 7 in the low long, rows 8 and 9 in the high one,
+ * so a row is never split between two longs.</li>
+ * <li>The horizontal edge bit of (x,y) is set when a wall is between (x,y) and
+ * (x,y+1). The vertical edge bit of (x,y) is set when a wall is between (x,y)
+ * and (x+1,y).</li>
+ * <li>Walls are placed and removed incrementally. Two legal walls never share
+ * an edge (see Game.isCrossing()), so removing a wall simply clears its
+ * edges.</li>
+ * <li>Reachability is decided by a bit-parallel flood fill: the set of reached
+ * squares grows by shifting it one square in every direction at once, masked
+ * by the edges that are not blocked.</li>
+ * </ul>
+ *
+ */
+
+public class WallBoard {
+
+	/**
+	 * Number of squares stored in the low long of a square mask (rows 1 to 7).
+	 */
+	public static final int LOW_SQUARES = 63;
+
+	// squares of the board, in the low and high longs of a square mask
+	static final long BOARD_LO = (1L << LOW_SQUARES) - 1;
+	static final long BOARD_HI = (1L << (81 - LOW_SQUARES)) - 1;
+	// squares a pawn could leave by going right if there was no wall
+	static final long RIGHT_LO;
+	static final long RIGHT_HI;
+	// squares of row 9, which a pawn can't leave by going to the next row
+	static final long LAST_ROW_HI = 0x1FFL << 9;
+
+	static {
+		long lastColumnLo = 0;
+		long lastColumnHi = 0;
+		for (int y = 1; y <= 9; y++) {
+			int square = square(8, y);
+			if (square < LOW_SQUARES) {
+				lastColumnLo |= 1L << square;
+			} else {
+				lastColumnHi |= 1L << (square - LOW_SQUARES);
+			}
+		}
+		RIGHT_LO = BOARD_LO & ~lastColumnLo;
+		RIGHT_HI = BOARD_HI & ~lastColumnHi;
+	}
+
+	// wall slots, one bit per possible wall
+	long hWalls;
+	long vWalls;
+
+	// blocked edges, one bit per square
+	long hEdgeLo;
+	long hEdgeHi;
+	long vEdgeLo;
+	long vEdgeHi;
+
+	/**
+	 * The index of a square on the board.
+	 *
+	 * @param x
+	 *            the letter coordinate.
+	 * @param y
+	 *            the number coordinate.
+	 * @return the index of the square, between 0 and 80.
+	 */
+	public static int square(int x, int y) {
+		return (y - 1) * 9 + x;
+	}
+
+	/**
+	 * Checks if a horizontal wall can be stored at x,y.
+	 *
+	 * @return true if (x,y) is a horizontal wall slot on the board.
+	 */
+	public static boolean isHorizontalSlot(int x, int y) {
+		return x >= 0 && x <= 7 && y >= 2 && y <= 9;
+	}
+
+	/**
+	 * Checks if a vertical wall can be stored at x,y.
+	 *
+	 * @return true if (x,y) is a vertical wall slot on the board.
+	 */
+	public static boolean isVerticalSlot(int x, int y) {
+		return x >= 1 && x <= 8 && y >= 1 && y <= 8;
+	}
+
+	/**
+	 * The bit used by a wall slot in its direction's long. Assumes the slot is
+	 * on the board.
+	 *
+	 * @return the bit index of the slot, between 0 and 63.
+	 */
+	public static int slot(int x, int y, MoveType dir) {
+		if (dir == MoveType.HORIZONTAL) {
+			return (y - 2) * 8 + x;
+		} else {
+			return (y - 1) * 8 + x - 1;
+		}
+	}
+
+	/**
+	 * Checks if a wall has been placed exactly in this slot.
+	 *
+	 * @param x
+	 *            the letter coordinate of the wall.
+	 * @param y
+	 *            the number coordinate of the wall.
+	 * @param dir
+	 *            the direction of the wall.
+	 * @return true if this very wall is on the board.
+	 */
+	public boolean hasWall(int x, int y, MoveType dir) {
+		if (dir == MoveType.HORIZONTAL) {
+			return isHorizontalSlot(x, y)
+					&& (hWalls & (1L << slot(x, y, dir))) != 0;
+		} else if (dir == MoveType.VERTICAL) {
+			return isVerticalSlot(x, y)
+					&& (vWalls & (1L << slot(x, y, dir))) != 0;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a wall is at coordinates x,y and with direction dir, with the
+	 * same meaning as Game.isWallAt(): a horizontal wall at (x,y) is between
+	 * (x,y-1) and (x,y), a vertical wall at (x,y) is between (x-1,y) and (x,y).
+	 *
+	 * @return True if the edge is blocked by a wall, false otherwise.
+	 */
+	public boolean isWallAt(int x, int y, MoveType dir) {
+		if (dir == MoveType.HORIZONTAL) {
+			return x >= 0 && x <= 8 && y >= 2 && y <= 9
+					&& test(hEdgeLo, hEdgeHi, square(x, y - 1));
+		} else if (dir == MoveType.VERTICAL) {
+			return x >= 1 && x <= 8 && y >= 1 && y <= 9
+					&& test(vEdgeLo, vEdgeHi, square(x - 1, y));
+		}
+		return false;
+	}
+
+	/**
+	 * Places a wall on the board.
+	 *
+	 * @return false if the wall is outside the board and could not be stored.
+	 */
+	public boolean place(int x, int y, MoveType dir) {
+		if (dir == MoveType.HORIZONTAL && isHorizontalSlot(x, y)) {
+			hWalls |= 1L << slot(x, y, dir);
+			int square = square(x, y - 1);
+			if (square < LOW_SQUARES) {
+				hEdgeLo |= 3L << square;
+			} else {
+				hEdgeHi |= 3L << (square - LOW_SQUARES);
+			}
+			return true;
+		} else if (dir == MoveType.VERTICAL && isVerticalSlot(x, y)) {
+			vWalls |= 1L << slot(x, y, dir);
+			setVerticalEdge(square(x - 1, y));
+			setVerticalEdge(square(x - 1, y + 1));
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes a wall from the board. Does nothing if it is not there.
+	 */
+	public void remove(int x, int y, MoveType dir) {
+		if (!hasWall(x, y, dir)) {
+			return;
+		}
+		if (dir == MoveType.HORIZONTAL) {
+			hWalls &= ~(1L << slot(x, y, dir));
+			int square = square(x, y - 1);
+			if (square < LOW_SQUARES) {
+				hEdgeLo &= ~(3L << square);
+			} else {
+				hEdgeHi &= ~(3L << (square - LOW_SQUARES));
+			}
+		} else {
+			vWalls &= ~(1L << slot(x, y, dir));
+			clearVerticalEdge(square(x - 1, y));
+			clearVerticalEdge(square(x - 1, y + 1));
+		}
+	}
+
+	private void setVerticalEdge(int square) {
+		if (square < LOW_SQUARES) {
+			vEdgeLo |= 1L << square;
+		} else {
+			vEdgeHi |= 1L << (square - LOW_SQUARES);
+		}
+	}
+
+	private void clearVerticalEdge(int square) {
+		if (square < LOW_SQUARES) {
+			vEdgeLo &= ~(1L << square);
+		} else {
+			vEdgeHi &= ~(1L << (square - LOW_SQUARES));
+		}
+	}
+
+	/**
+	 * The square next to a square in a direction, if no wall is in between.
+	 *
+	 * @param square
+	 *            the square to start from.
+	 * @param direction
+	 *            0 for right, 1 for left, 2 for the previous row, 3 for the
+	 *            next row.
+	 * @return the neighbouring square, or -1 if it is outside the board or
+	 *         behind a wall.
+	 */
+	public int neighbour(int square, int direction) {
+		int x = square % 9;
+		switch (direction) {
+		case 0:
+			return x < 8 && !test(vEdgeLo, vEdgeHi, square) ? square + 1 : -1;
+		case 1:
+			return x > 0 && !test(vEdgeLo, vEdgeHi, square - 1) ? square - 1
+					: -1;
+		case 2:
+			return square >= 9 && !test(hEdgeLo, hEdgeHi, square - 9) ? square - 9
+					: -1;
+		default:
+			return square < 72 && !test(hEdgeLo, hEdgeHi, square) ? square + 9
+					: -1;
+		}
+	}
+
+	/**
+	 * Checks if a pawn can reach a row from a square, going around the walls.
+	 * The reached squares are flood filled all at once with shifts and masks,
+	 * so this takes about as many iterations as the path is long.
+	 *
+	 * @param from
+	 *            the square the pawn is on.
+	 * @param goalRow
+	 *            the number coordinate of the row to reach.
+	 * @return true if there is a path from the square to the row.
+	 */
+	public boolean canReach(int from, int goalRow) {
+		// squares that are not blocked towards the right / the next row
+		long rightLo = RIGHT_LO & ~vEdgeLo;
+		long rightHi = RIGHT_HI & ~vEdgeHi;
+		long nextLo = BOARD_LO & ~hEdgeLo;
+		long nextHi = BOARD_HI & ~LAST_ROW_HI & ~hEdgeHi;
+
+		long goalLo = 0;
+		long goalHi = 0;
+		if (goalRow <= 7) {
+			goalLo = 0x1FFL << ((goalRow - 1) * 9);
+		} else {
+			goalHi = 0x1FFL << ((goalRow - 8) * 9);
+		}
+
+		long reachLo = 0;
+		long reachHi = 0;
+		if (from < LOW_SQUARES) {
+			reachLo = 1L << from;
+		} else {
+			reachHi = 1L << (from - LOW_SQUARES);
+		}
+
+		while ((reachLo & goalLo) == 0 && (reachHi & goalHi) == 0) {
+			long lo = reachLo | ((reachLo & rightLo) << 1)
+					| ((reachLo >>> 1) & rightLo) | ((reachLo & nextLo) << 9)
+					| ((reachLo >>> 9) & nextLo) | ((reachHi << 54) & nextLo);
+			long hi = reachHi | ((reachHi & rightHi) << 1)
+					| ((reachHi >>> 1) & rightHi) | ((reachHi & nextHi) << 9)
+					| ((reachHi >>> 9) & nextHi) | ((reachLo & nextLo) >>> 54);
+			lo &= BOARD_LO;
+			hi &= BOARD_HI;
+			if (lo == reachLo && hi == reachHi) {
+				return false;
+			}
+			reachLo = lo;
+			reachHi = hi;
+		}
+		return true;
+	}
+
+	/**
+	 * Floods the board from a whole row, going around the walls, to find every
+	 * square that can reach it. The result does not depend on the pawns, so it
+	 * can be kept as long as the walls do not change.
+	 * 
+	 * @param row
+	 *            the number coordinate of the row to start from.
+	 * @param masks
+	 *            receives the squares that can reach the row, the low long at
+	 *            index and the high one at index + 1.
+	 * @param index
+	 *            where to store the mask in the array.
+	 */
+	public void reachableFrom(int row, long[] masks, int index) {
+		long rightLo = RIGHT_LO & ~vEdgeLo;
+		long rightHi = RIGHT_HI & ~vEdgeHi;
+		long nextLo = BOARD_LO & ~hEdgeLo;
+		long nextHi = BOARD_HI & ~LAST_ROW_HI & ~hEdgeHi;
+
+		long reachLo = 0;
+		long reachHi = 0;
+		if (row <= 7) {
+			reachLo = 0x1FFL << ((row - 1) * 9);
+		} else {
+			reachHi = 0x1FFL << ((row - 8) * 9);
+		}
+
+		while (true) {
+			long lo = reachLo | ((reachLo & rightLo) << 1)
+					| ((reachLo >>> 1) & rightLo) | ((reachLo & nextLo) << 9)
+					| ((reachLo >>> 9) & nextLo) | ((reachHi << 54) & nextLo);
+			long hi = reachHi | ((reachHi & rightHi) << 1)
+					| ((reachHi >>> 1) & rightHi) | ((reachHi & nextHi) << 9)
+					| ((reachHi >>> 9) & nextHi) | ((reachLo & nextLo) >>> 54);
+			lo &= BOARD_LO;
+			hi &= BOARD_HI;
+			if (lo == reachLo && hi == reachHi) {
+				break;
+			}
+			reachLo = lo;
+			reachHi = hi;
+		}
+		masks[index] = reachLo;
+		masks[index + 1] = reachHi;
+	}
+
+	/**
+	 * Checks whether a wall would be on top of or crossing the walls already
+	 * placed, with the same rule as Game.isCrossing(): a wall can't use an edge
+	 * that is already blocked, nor cross the middle of a wall that blocks both
+	 * edges on the other side.
+	 * 
+	 * @return true if the wall can't be placed there.
+	 */
+	public boolean isCrossing(int x, int y, MoveType dir) {
+		if (dir == MoveType.VERTICAL) {
+			return (isWallAt(x - 1, y + 1, MoveType.HORIZONTAL) && isWallAt(x,
+					y + 1, MoveType.HORIZONTAL))
+					|| isWallAt(x, y, MoveType.VERTICAL)
+					|| isWallAt(x, y + 1, MoveType.VERTICAL);
+		} else if (dir == MoveType.HORIZONTAL) {
+			return (isWallAt(x + 1, y - 1, MoveType.VERTICAL) && isWallAt(x + 1,
+					y, MoveType.VERTICAL))
+					|| isWallAt(x, y, MoveType.HORIZONTAL)
+					|| isWallAt(x + 1, y, MoveType.HORIZONTAL);
+		}
+		return false;
+	}
+
+	/**
+	 * Tests the bit of a square in a mask spread over two longs.
+	 */
+	static boolean test(long lo, long hi, int square) {
+		if (square < LOW_SQUARES) {
+			return (lo & (1L << square)) != 0;
+		} else {
+			return (hi & (1L << (square - LOW_SQUARES))) != 0;
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package quoridor;
+
+import java.util.Random;
+
+import quoridor.Move.MoveType;
+
+/**
+ * Zobrist holds the random keys used to hash Quoridor positions.
+ *
+ * <h2>Goals</h2>
+ * <ul>
+ * <li>Gives a 64 bit key to every part of a position: each pawn on each
+ * square, each wall slot, the number of walls left of each player and the
+ * player to move.</li>
+ * </ul>
+ *
+ * <h2>Implementation</h2>
+ * <ul>
+ * <li>The hash of a position is the xor of the keys of its parts, so Game can
+ * update it in constant time when a part changes.</li>
+ * <li>Keys come from a Random with a fixed seed, so a position has the same
+ * hash from one run to another and hashes can be stored in files.</li>
+ * </ul>
+ *
+ */
+
+public class Zobrist {
+
+	static final long[][] PAWN = new long[2][81];
+	static final long[] HORIZONTAL = new long[64];
+	static final long[] VERTICAL = new long[64];
+	static final long[][] WALLS_LEFT = new long[2][11];
+	static final long SECOND_PLAYER_TO_MOVE;
+
+	static {
+		Random random = new Random(666);
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 81; j++) {
+				PAWN[i][j] = random.nextLong();
+			}
+			for (int j = 0; j < 11; j++) {
+				WALLS_LEFT[i][j] = random.nextLong();
+			}
+		}
+		for (int j = 0; j < 64; j++) {
+			HORIZONTAL[j] = random.nextLong();
+			VERTICAL[j] = random.nextLong();
+		}
+		SECOND_PLAYER_TO_MOVE = random.nextLong();
+	}
+
+	/**
+	 * The key of a pawn on a square.
+	 *
+	 * @param player
+	 *            0 for the first player, 1 for the second one.
+	 * @param pawn
+	 *            the square of the pawn.
+	 * @return the key, or 0 if the pawn is not on the board.
+	 */
+	public static long pawn(int player, Point pawn) {
+		if (pawn == null || pawn.x() < 0 || pawn.x() > 8 || pawn.y() < 1
+				|| pawn.y() > 9) {
+			return 0;
+		}
+		return PAWN[player][WallBoard.square(pawn.x(), pawn.y())];
+	}
+
+	/**
+	 * The key of a wall slot.
+	 *
+	 * @return the key, or 0 if the wall is not on the board.
+	 */
+	public static long wall(int x, int y, MoveType dir) {
+		if (dir == MoveType.HORIZONTAL && WallBoard.isHorizontalSlot(x, y)) {
+			return HORIZONTAL[WallBoard.slot(x, y, dir)];
+		} else if (dir == MoveType.VERTICAL && WallBoard.isVerticalSlot(x, y)) {
+			return VERTICAL[WallBoard.slot(x, y, dir)];
+		}
+		return 0;
+	}
+
+	/**
+	 * The key of the number of walls a player has left.
+	 *
+	 * @param player
+	 *            0 for the first player, 1 for the second one.
+	 * @param wallsLeft
+	 *            the number of walls left, between 0 and 10.
+	 * @return the key, or 0 for a number of walls that can't happen.
+	 */
+	public static long wallsLeft(int player, int wallsLeft) {
+		if (wallsLeft < 0 || wallsLeft > 10) {
+			return 0;
+		}
+		return WALLS_LEFT[player][wallsLeft];
+	}
+
+}
@@ -0,0 +1,56 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import quoridor.AIPlayer;
+import quoridor.Game;
+import quoridor.GameEnd;
+
+public class AdjudicationTest {
+
+	Game newGame(String moves) {
+		return TestGames.newGame(new AIPlayer("Computer 1"), new AIPlayer(
+				"Computer 2"), moves);
+	}
+
+	@Test
+	public void threefoldRepetitionIsADraw() {
+		// both pawns step forward and back twice
+		Game game = newGame("new e8 e2 e9 e1 e8 e2 e9 e1");
+		assertEquals(3, game.repetitions());
+		assertNull(game.adjudicate());
+
+		game.adjudicateRepetitions = true;
+		assertEquals(GameEnd.REPETITION, game.adjudicate());
+		assertNull(game.winner(GameEnd.REPETITION));
+		assertFalse(GameEnd.REPETITION.isDecisive());
+	}
+
+	@Test
+	public void positionsWithTheOtherPlayerToMoveAreNotRepetitions() {
+		Game game = newGame("new e8 e2 e9 e1 e8 e2 e9");
+		assertEquals(2, game.repetitions());
+		game.adjudicateRepetitions = true;
+		assertNull(game.adjudicate());
+	}
+
+	@Test
+	public void maxPliesIsADraw() {
+		Game game = newGame("new e8 e2 e7 e3");
+		game.maxPlies = 5;
+		assertNull(game.adjudicate());
+		game.maxPlies = 4;
+		assertEquals(GameEnd.MAX_PLIES, game.adjudicate());
+		assertTrue(GameEnd.MAX_PLIES.isAdjudicated());
+	}
+
+	@Test
+	public void playerWithoutMoveLoses() {
+		Game game = newGame("new e8 e2 e7");
+		assertEquals(game.players()._1(), game.winner(GameEnd.NO_MOVE));
+		assertTrue(GameEnd.NO_MOVE.isDecisive());
+	}
+
+}
@@ -0,0 +1,78 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import quoridor.AIPlayer;
+import quoridor.CompiledEvaluator;
+import quoridor.Game;
+import quoridor.Player;
+import features.EvaluationContext;
+import features.Feature;
+import features.MaxPlayerMovesToNextColumn;
+import features.MaxPlayerShortestPath;
+import features.MaxPlayerWalls;
+import features.MinPlayerShortestPath;
+import features.MinPlayerWalls;
+import features.WallsDifference;
+
+public class CompiledEvaluatorTest {
+
+	Feature[] features = new Feature[] { null, new MaxPlayerShortestPath(),
+			new MinPlayerShortestPath(), new MaxPlayerWalls(),
+			new MinPlayerWalls(), new WallsDifference(),
+			new MaxPlayerMovesToNextColumn() };
+
+	@Test
+	public void evaluatesLikeTheFeatures() {
+		Game game = TestGames.newGame(new AIPlayer("Computer 1"),
+				new AIPlayer("Computer 2"),
+				"new e8 e2 d4h e3 f5v e4 c6h d4 b2v");
+		Random random = new Random(42);
+		for (int i = 0; i < 100; i++) {
+			float[] weights = new float[features.length - 1];
+			for (int j = 0; j < weights.length; j++) {
+				weights[j] = random.nextBoolean() ? 0 : random.nextFloat() * 6 - 3;
+			}
+			CompiledEvaluator evaluator = new CompiledEvaluator(features, 0,
+					weights);
+			for (Player player : new Player[] { game.players()._1(),
+					game.players()._2() }) {
+				float expected = 0;
+				for (int j = 1; j < features.length; j++) {
+					expected += weights[j - 1]
+							* features[j].evaluate(game, player);
+				}
+				assertEquals(expected, evaluator.evaluate(new EvaluationContext(
+						game, player)), 1e-3f);
+			}
+		}
+	}
+
+	@Test
+	public void leavesOutZeroWeights() {
+		float[] weights = new float[] { 0f, 0f, 0f, 0f, 0f, 0f };
+		assertEquals(0, new CompiledEvaluator(features, 0, weights).size());
+		weights[5] = 1f;
+		assertEquals(1, new CompiledEvaluator(features, 0, weights).size());
+		// the walls of the opponent cancel out, those of the player are left
+		weights[2] = 1f;
+		weights[4] = 1f;
+		assertEquals(2, new CompiledEvaluator(features, 0, weights).size());
+	}
+
+	@Test
+	public void isCompiledForItsWeightsOnly() {
+		float[] weights = new float[] { 0f, -1f, 1f, 1f, 0f, 0f };
+		CompiledEvaluator evaluator = new CompiledEvaluator(features, 0,
+				weights);
+		assertTrue(evaluator.isCompiledFor(features, 0, weights));
+		weights[0] = 0.5f;
+		assertFalse(evaluator.isCompiledFor(features, 0, weights));
+		assertFalse(evaluator.isCompiledFor(features, 1, weights));
+	}
+
+}
@@ -0,0 +1,123 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import quoridor.DistanceField;
+import quoridor.Game;
+import quoridor.Human;
+import quoridor.Move;
+import quoridor.Move.MoveType;
+import quoridor.PathFinder;
+import quoridor.Player;
+import quoridor.WallBoard;
+import util.Two;
+
+public class DistanceFieldTest {
+
+	static final int GAMES = 50;
+	static final int STEPS = 120;
+	static final int[] GOALS = { 1, 9 };
+
+	/**
+	 * Checks the distances of the fields against a breadth-first search from
+	 * every square, on a board with the same walls, and the distances the
+	 * game gives its pawns.
+	 */
+	void assertDistances(Game game, DistanceField[] fields,
+			PathFinder pathFinder, String moves) {
+		for (int i = 0; i < GOALS.length; i++) {
+			for (int x = 0; x <= 8; x++) {
+				for (int y = 1; y <= 9; y++) {
+					int square = WallBoard.square(x, y);
+					assertEquals(moves + " goal " + GOALS[i] + " from " + x
+							+ "," + y, pathFinder.distance(square, GOALS[i]),
+							fields[i].distance(square));
+				}
+			}
+		}
+		for (Player p : new Player[] { game.players()._1(),
+				game.players()._2() }) {
+			int square = WallBoard.square(p.pawn().x(), p.pawn().y());
+			assertEquals(moves + " " + p.name(),
+					pathFinder.distance(square, p.goal()),
+					game.distanceToGoal(p));
+		}
+	}
+
+	/**
+	 * The moves the player to move can make, found by trying every square
+	 * and every wall.
+	 */
+	List<Move> validMoves(Game game) {
+		List<Move> moves = new ArrayList<Move>();
+		for (int x = 0; x <= 8; x++) {
+			for (int y = 1; y <= 9; y++) {
+				Move[] candidates = { new Move(x, y, MoveType.PAWN),
+						new Move(x, y, MoveType.HORIZONTAL),
+						new Move(x, y, MoveType.VERTICAL) };
+				for (Move move : candidates) {
+					if (game.isValid(move, game.myTurn())) {
+						moves.add(move);
+					}
+				}
+			}
+		}
+		return moves;
+	}
+
+	@Test
+	public void incrementalDistancesMatchBreadthFirstSearch() {
+		Random random = new Random(42);
+		for (int i = 0; i < GAMES; i++) {
+			Game game = new Game(Two.two((Player) new Human("Player 1"),
+					(Player) new Human("Player 2")));
+			game.initGame(null);
+			// fields kept on a board of their own, next to the ones of the game
+			WallBoard walls = new WallBoard();
+			DistanceField[] fields = { new DistanceField(walls, GOALS[0]),
+					new DistanceField(walls, GOALS[1]) };
+			PathFinder pathFinder = new PathFinder(walls);
+			Move[] made = new Move[STEPS];
+			int count = 0;
+			StringBuilder moves = new StringBuilder("game " + i + ":");
+			for (int step = 0; step < STEPS; step++) {
+				if (count > 0 && (game.isOver() || random.nextInt(3) == 0)) {
+					Move move = made[--count];
+					game.unmakeMove();
+					if (move.direction() != MoveType.PAWN) {
+						walls.remove(move.coord().x(), move.coord().y(),
+								move.direction());
+						for (DistanceField field : fields) {
+							field.wallRemoved();
+						}
+					}
+					moves.append(" -");
+				} else {
+					List<Move> valid = validMoves(game);
+					Move move = valid.get(random.nextInt(valid.size()));
+					game.makeMove(move);
+					if (move.direction() != MoveType.PAWN) {
+						walls.place(move.coord().x(), move.coord().y(),
+								move.direction());
+						for (DistanceField field : fields) {
+							field.wallPlaced(move.coord().x(), move.coord()
+									.y(), move.direction());
+						}
+					}
+					made[count++] = move;
+					moves.append(' ').append(move.coord().x()).append(',')
+							.append(move.coord().y())
+							.append(move.direction().name().charAt(0));
+				}
+				assertDistances(game, fields, pathFinder, moves.toString());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import quoridor.AIPlayer;
+import quoridor.EngineConfig;
+import quoridor.Game;
+import quoridor.GameEnd;
+import quoridor.Human;
+import quoridor.MatchResult;
+import quoridor.MatchRunner;
+import quoridor.MoveCode;
+import quoridor.Player;
+
+public class MatchRunnerTest {
+
+	EngineConfig engine(String name, long seed) {
+		EngineConfig config = new EngineConfig(name, new float[] { 0.0f, -1f,
+				1f, 1f });
+		config.searchDepth = 1;
+		config.noiseSeed = seed;
+		return config;
+	}
+
+	int[] moves(MatchResult result) {
+		int[] moves = new int[result.plies()];
+		for (int ply = 0; ply < moves.length; ply++) {
+			moves[ply] = result.move(ply);
+		}
+		return moves;
+	}
+
+	@Test
+	public void resultTellsHowTheMatchWasPlayed() {
+		MatchRunner runner = new MatchRunner(engine("one", 1), engine("two", 2));
+		MatchResult result = runner.play();
+		assertTrue(result.plies() > 0);
+		for (int ply = 0; ply < result.plies(); ply++) {
+			assertTrue(result.moveNanos(ply) > 0);
+		}
+		try {
+			result.moveNanos(result.plies());
+			fail("a time for a move that was not played");
+		} catch (ArrayIndexOutOfBoundsException ex) {
+			// one time per move
+		}
+
+		// the match is played again move by move on a game, which has to end
+		// the same way
+		Game game = TestGames.newGame(new Human("one"), new Human("two"),
+				null);
+		game.adjudicateRaces = true;
+		game.adjudicateRepetitions = true;
+		game.maxPlies = MatchRunner.DEFAULT_MAX_PLIES;
+		int[] walls = { 10, 10 };
+		for (int ply = 0; ply < result.plies(); ply++) {
+			assertNull(game.adjudicate());
+			if (MoveCode.isWall(result.move(ply))) {
+				walls[ply % 2]--;
+			}
+			game.move(MoveCode.toMove(result.move(ply)), game.myTurn());
+		}
+		GameEnd end = game.adjudicate();
+		assertEquals(end, result.end());
+		Player winner = game.winner(end);
+		assertEquals(winner == null ? MatchResult.NONE
+				: winner == game.players()._1() ? 1 : 2, result.winner());
+		assertEquals(walls[0], result.wallsLeft(1));
+		assertEquals(walls[1], result.wallsLeft(2));
+	}
+
+	@Test
+	public void sameSeedsPlayTheSameMatch() {
+		EngineConfig one = engine("one", 3);
+		EngineConfig two = engine("two", 4);
+		one.searchDepth = 2;
+		two.searchDepth = 2;
+		MatchRunner runner = new MatchRunner();
+		int[] expected = moves(runner.play(one, two));
+		// a match between other engines on the same runner, and so on the
+		// same tables, doesn't change the moves
+		runner.play(engine("three", 7), engine("four", 8));
+		assertArrayEquals(expected, moves(runner.play(one, two)));
+		assertArrayEquals(expected, moves(new MatchRunner(one, two).play()));
+	}
+
+	@Test
+	public void sameSeedsPlayTheSameMonteCarloMatch() {
+		EngineConfig one = engine("one", 5);
+		EngineConfig two = engine("two", 6);
+		for (EngineConfig config : new EngineConfig[] { one, two }) {
+			config.engine = AIPlayer.Engine.MCTS;
+			config.playouts = 200;
+		}
+		MatchRunner runner = new MatchRunner(one, two);
+		int[] expected = moves(runner.play());
+		assertArrayEquals(expected, moves(runner.play()));
+	}
+
+	@Test
+	public void matchIsADrawAfterMaxPlies() {
+		MatchRunner runner = new MatchRunner(engine("one", 1), engine("two", 2));
+		runner.maxPlies = 6;
+		MatchResult result = runner.play();
+		assertEquals(6, result.plies());
+		assertEquals(GameEnd.MAX_PLIES, result.end());
+		assertEquals(MatchResult.NONE, result.winner());
+	}
+
+}
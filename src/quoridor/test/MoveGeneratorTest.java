@@ -0,0 +1,99 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import quoridor.Game;
+import quoridor.Move;
+import quoridor.Move.MoveType;
+import quoridor.MoveCode;
+
+public class MoveGeneratorTest {
+
+	int[] buffer = new int[Game.MAX_MOVES];
+
+	/**
+	 * The moves isValid() accepts anywhere on the board, but staying on the
+	 * same square.
+	 */
+	Set<Move> validMoves(Game game) {
+		Set<Move> valid = new HashSet<Move>();
+		for (int x = 0; x <= 8; x++) {
+			for (int y = 1; y <= 9; y++) {
+				for (MoveType type : MoveType.values()) {
+					Move move = new Move(x, y, type);
+					if (game.isValid(move, game.myTurn())
+							&& !(type == MoveType.PAWN && move.coord().equals(
+									game.myTurn().pawn()))) {
+						valid.add(move);
+					}
+				}
+			}
+		}
+		return valid;
+	}
+
+	List<Move> generatedMoves(Game game) {
+		int count = game.generateMoves(buffer);
+		List<Move> generated = new ArrayList<Move>();
+		for (int i = 0; i < count; i++) {
+			generated.add(MoveCode.toMove(buffer[i]));
+		}
+		return generated;
+	}
+
+	void checkMoves(Game game) {
+		List<Move> generated = generatedMoves(game);
+		assertEquals("no duplicates: " + generated, generated.size(),
+				new HashSet<Move>(generated).size());
+		assertEquals(validMoves(game), new HashSet<Move>(generated));
+	}
+
+	@Test
+	public void startPosition() {
+		Game game = TestGames.newGame(null);
+		checkMoves(game);
+		assertEquals(3 + 128, generatedMoves(game).size());
+	}
+
+	@Test
+	public void jumps() {
+		// face to face in the middle, then with a wall behind the opponent
+		checkMoves(TestGames.newGame("new e8 e2 e7 e3 e6 e4"));
+		checkMoves(TestGames.newGame("new e8 e2 e7 e3 e6 e4 e5"));
+		checkMoves(TestGames.newGame("new e8 e2 e7 e3 e6 e4 e5 e3h"));
+		// opponent on the left border
+		checkMoves(TestGames.newGame("new e8 e2 d8 d2 c8 c2 b8 c3 a8 c4 a7 c5 a6 b5 a5"));
+	}
+
+	@Test
+	public void randomGames() {
+		Random random = new Random(3);
+		for (int i = 0; i < 30; i++) {
+			Game game = TestGames.newGame(null);
+			while (!game.isOver()) {
+				checkMoves(game);
+				List<Move> generated = generatedMoves(game);
+				// pawn moves come first, play them half of the time so that
+				// games get to an end
+				Move move = generated.get(random.nextInt(generated.size()));
+				if (random.nextBoolean()) {
+					move = generated.get(random.nextInt(Math.min(4,
+							generated.size())));
+				}
+				game.makeMove(move);
+				checkMoves(game);
+				game.unmakeMove();
+				game.move(move, game.myTurn());
+			}
+		}
+	}
+
+}
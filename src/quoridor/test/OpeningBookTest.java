@@ -0,0 +1,53 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import quoridor.MoveCode;
+import quoridor.OpeningBook;
+
+public class OpeningBookTest {
+
+	OpeningBook newBook(SortedMap<Long, int[]> weights) throws IOException {
+		File file = File.createTempFile("opening", ".book");
+		file.deleteOnExit();
+		OpeningBook.write(file, weights);
+		return new OpeningBook(file);
+	}
+
+	@Test
+	public void probeFindsTheHeaviestMove() throws IOException {
+		SortedMap<Long, int[]> weights = new TreeMap<Long, int[]>();
+		// negative hashes sort first, like in the file
+		long[] hashes = new long[] { Long.MIN_VALUE, -42, 0, 7, Long.MAX_VALUE };
+		for (int i = 0; i < hashes.length; i++) {
+			int[] moves = new int[MoveCode.COUNT];
+			moves[i] = 1;
+			moves[MoveCode.HORIZONTAL + i] = 3;
+			moves[MoveCode.VERTICAL + i] = 2;
+			weights.put(hashes[i], moves);
+		}
+		OpeningBook book = newBook(weights);
+
+		assertEquals(3 * hashes.length, book.size());
+		for (int i = 0; i < hashes.length; i++) {
+			assertEquals(MoveCode.HORIZONTAL + i, book.probe(hashes[i]));
+		}
+		assertEquals(-1, book.probe(1));
+		assertEquals(-1, book.probe(-43));
+	}
+
+	@Test
+	public void emptyBook() throws IOException {
+		OpeningBook book = newBook(new TreeMap<Long, int[]>());
+		assertEquals(0, book.size());
+		assertEquals(-1, book.probe(0));
+	}
+
+}
@@ -0,0 +1,76 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import quoridor.AI;
+import quoridor.AIPlayer;
+import quoridor.Move;
+
+public class ParallelRootSearchTest {
+
+	static final String[] POSITIONS = {
+			"new e8 e2 e7 e3 e6 e4 e4h c6v",
+			"new f9 d1 f8 e1 a2h f1 d1v g8v e8 f8h h5v f5v f8 g1 e8 g2" };
+
+	AI search(String moves, int threads) {
+		AIPlayer one = new AIPlayer("Computer 1", new float[] { 0.0f, -1f,
+				1f, 1f });
+		AIPlayer two = new AIPlayer("Computer 2", new float[] { 0.0f, -1f,
+				1f, 1f });
+		for (AIPlayer player : new AIPlayer[] { one, two }) {
+			player.searchDepth = 4;
+			player.transpositionTableBytes = 0;
+			player.reductions = false;
+			player.threads = threads;
+			player.noiseSeed = 7;
+		}
+		return new AI(TestGames.newGame(one, two, moves));
+	}
+
+	@Test
+	public void parallelSearchFindsTheSequentialMove() {
+		for (String position : POSITIONS) {
+			AI sequential = search(position, 1);
+			Move expected = sequential.createMove();
+			int[] line = null;
+			for (int i = 0; i < 3; i++) {
+				AI parallel = search(position, 4);
+				assertEquals(position, expected, parallel.createMove());
+				if (line != null) {
+					assertArrayEquals(position, line,
+							parallel.principalVariation());
+				}
+				line = parallel.principalVariation();
+			}
+		}
+	}
+
+	@Test
+	public void speedupIsReportedAgainstOneThread() {
+		AIPlayer one = new AIPlayer("Computer 1", new float[] { 0.0f, -1f,
+				1f, 1f });
+		AIPlayer two = new AIPlayer("Computer 2", new float[] { 0.0f, -1f,
+				1f, 1f });
+		one.threads = 2;
+		one.lazySmp = true;
+		one.measureSpeedup = true;
+		AI ai = new AI(TestGames.newGame(one, two, POSITIONS[0]));
+		assertNotNull(ai.createMove());
+		assertTrue(ai.stats().toJson(), ai.stats().speedup() > 0);
+		assertTrue(ai.stats().toJson(), ai.stats().nodeRatio() > 0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rootSplitWithTableIsRejected() {
+		AIPlayer one = new AIPlayer("Computer 1", new float[] { 0.0f, -1f,
+				1f, 1f });
+		AIPlayer two = new AIPlayer("Computer 2", new float[] { 0.0f, -1f,
+				1f, 1f });
+		one.threads = 2;
+		one.reductions = false;
+		new AI(TestGames.newGame(one, two, null));
+	}
+
+}
@@ -0,0 +1,46 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import quoridor.AIPlayer;
+import quoridor.Game;
+import quoridor.Human;
+import quoridor.Move;
+import quoridor.MoveCode;
+import quoridor.Player;
+import quoridor.Ponderer;
+
+public class PondererTest {
+
+	Game newGame(String moves) {
+		Player human = new Human("human");
+		AIPlayer ai = new AIPlayer("Computer", new float[] { 0.0f, -1f, 1f,
+				1f });
+		ai.ponder = true;
+		ai.searchDepth = 1;
+		return TestGames.newGame(human, ai, moves);
+	}
+
+	@Test
+	public void predictedMoveIsAHit() {
+		Game game = newGame("new e8 e2");
+		Ponderer ponderer = Ponderer.start(game);
+		assertNotNull(ponderer);
+		Move move = MoveCode.toMove(ponderer.predicted());
+		assertTrue(game.isValid(move, game.myTurn()));
+		assertNotNull(ponderer.finish(move));
+	}
+
+	@Test
+	public void predictedMoveAfterUndoIsAMiss() {
+		Game game = newGame("new e8 e2");
+		Ponderer ponderer = Ponderer.start(game);
+		assertNotNull(ponderer);
+		// the human undoes its move and the answer, then plays the same code
+		assertTrue(game.undo());
+		assertNull(ponderer.finish(MoveCode.toMove(ponderer.predicted())));
+	}
+
+}
@@ -0,0 +1,190 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import quoridor.Game;
+import quoridor.Player;
+import quoridor.RaceSolver;
+
+public class RaceSolverTest {
+
+	static final int MAX_DEPTH = 9;
+
+	// walls around the squares the races are played on
+	static final String[] WALLS = { "", "e2h", "d3v e3h", "c2h f2v e4h b3v" };
+
+	int[][] buffers = new int[MAX_DEPTH + 1][Game.MAX_MOVES];
+
+	/**
+	 * Creates a game with walls and the pawns on two squares, both players
+	 * being out of walls.
+	 */
+	Game race(String walls, String pawn1, String pawn2, boolean secondToMove) {
+		String moves = walls.length() == 0 ? "new" : "new " + walls;
+		// the second player to move after the walls
+		boolean second = walls.length() > 0
+				&& walls.split(" ").length % 2 == 1;
+		// the pawns move to their squares, the one of the player to move
+		// staying there once more if needed
+		moves += second ? " " + pawn2 + " " + pawn1 : " " + pawn1 + " "
+				+ pawn2;
+		if (second != secondToMove) {
+			moves += " " + (second ? pawn2 : pawn1);
+		}
+		Game game = TestGames.newGame(moves);
+		for (Player p : new Player[] { game.players()._1(),
+				game.players()._2() }) {
+			while (p.wallsLeft() > 0) {
+				p.deductWall();
+			}
+		}
+		return game;
+	}
+
+	static String square(int x, int y) {
+		return (char) ('a' + x) + "" + y;
+	}
+
+	/**
+	 * Searches every pawn move of a race to a depth, with the result of
+	 * RaceSolver.probe(): UNKNOWN if it is not decided within the depth, n if
+	 * the player to move wins and -n if it loses, in n - 1 plies.
+	 */
+	int search(Game game, int depth) {
+		if (game.isOver()) {
+			return -1;
+		}
+		if (depth == 0) {
+			return RaceSolver.UNKNOWN;
+		}
+		int[] moves = buffers[depth];
+		int count = game.generateMoves(moves);
+		int win = 0;
+		int loss = 0;
+		boolean unknown = count == 0;
+		for (int i = 0; i < count; i++) {
+			game.makeMove(moves[i]);
+			int result = search(game, depth - 1);
+			game.unmakeMove();
+			if (result < 0 && (win == 0 || 1 - result < win)) {
+				win = 1 - result;
+			} else if (result == RaceSolver.UNKNOWN) {
+				unknown = true;
+			} else if (result > 0 && result + 1 > loss) {
+				loss = result + 1;
+			}
+		}
+		if (win > 0) {
+			return win;
+		}
+		return unknown ? RaceSolver.UNKNOWN : -loss;
+	}
+
+	/**
+	 * The result of the shallowest search deciding a race, so the quickest
+	 * win or the slowest loss.
+	 */
+	int bruteForce(Game game) {
+		for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+			int result = search(game, depth);
+			if (result != RaceSolver.UNKNOWN) {
+				return result;
+			}
+		}
+		return RaceSolver.UNKNOWN;
+	}
+
+	/**
+	 * Checks the outcome the solver gives a race against the brute force
+	 * search, and that its best move keeps that outcome.
+	 */
+	void assertSolved(RaceSolver solver, Game game, String position) {
+		int expected = bruteForce(game);
+		int result = solver.solve(game);
+		if (expected == RaceSolver.UNKNOWN) {
+			assertTrue(position + ": " + result,
+					result == RaceSolver.UNKNOWN
+							|| Math.abs(result) - 1 > MAX_DEPTH);
+			return;
+		}
+		assertEquals(position, expected, result);
+		if (!game.isOver()) {
+			game.makeMove(solver.bestMove(game));
+			assertEquals(position + " after the best move", result > 0 ? 1
+					- result : -result - 1, solver.solve(game));
+			game.unmakeMove();
+		}
+	}
+
+	@Test
+	public void jumpOverFacingPawnToWin() {
+		// the first player jumps from e3 over e2 to its goal row
+		Game game = race("", "e3", "e2", false);
+		assertEquals(2, bruteForce(game));
+		assertEquals(2, new RaceSolver().solve(game));
+	}
+
+	@Test
+	public void facingPawnsBlockTheShortestPath() {
+		RaceSolver solver = new RaceSolver();
+		// the second player steps in front of the first pawn, or is jumped
+		assertSolved(solver, race("", "e4", "e3", true), "e4 e3");
+		assertSolved(solver, race("", "e4", "e3", false), "e4 e3");
+		// a wall behind the facing pawn makes the jump go to its sides
+		assertSolved(solver, race("e2h", "e4", "e3", false), "e2h e4 e3");
+		assertSolved(solver, race("e2h", "e3", "e2", false), "e2h e3 e2");
+		assertSolved(solver, race("e2h", "e3", "e2", true), "e2h e3 e2");
+	}
+
+	@Test
+	public void racesMatchBruteForce() {
+		for (String walls : WALLS) {
+			RaceSolver solver = new RaceSolver();
+			for (int y1 = 2; y1 <= 3; y1++) {
+				for (int x1 = 0; x1 <= 8; x1++) {
+					for (int y2 = 1; y2 <= 8; y2++) {
+						for (int x2 = 0; x2 <= 8; x2++) {
+							if (x1 == x2 && y1 == y2) {
+								continue;
+							}
+							String pawn1 = square(x1, y1);
+							String pawn2 = square(x2, y2);
+							for (boolean second : new boolean[] { false, true }) {
+								assertSolved(solver,
+										race(walls, pawn1, pawn2, second),
+										walls + " " + pawn1 + " " + pawn2
+												+ (second ? " second" : ""));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void onlyTheWinnerOfTheRaceMayHaveWallsLeft() {
+		Game game = race("", "e3", "e5", false);
+		int race = bruteForce(game);
+		assertTrue(race > 0);
+
+		// the first player, winning the race, has walls left
+		game = TestGames.newGame("new e3 e5");
+		Player second = game.players()._2();
+		while (second.wallsLeft() > 0) {
+			second.deductWall();
+		}
+		assertEquals(race, new RaceSolver().solve(game));
+
+		// the second player, losing the race, has walls left
+		game = TestGames.newGame("new e3 e5");
+		Player first = game.players()._1();
+		while (first.wallsLeft() > 0) {
+			first.deductWall();
+		}
+		assertEquals(RaceSolver.UNKNOWN, new RaceSolver().solve(game));
+	}
+
+}
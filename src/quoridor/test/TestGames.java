@@ -0,0 +1,42 @@
+package quoridor.test;
+
+import quoridor.Command;
+import quoridor.Game;
+import quoridor.Human;
+import quoridor.Player;
+import util.Two;
+
+/**
+ * TestGames builds the games the tests play on.
+ */
+public class TestGames {
+
+	/**
+	 * Creates a game between two players, after some moves.
+	 *
+	 * @param one
+	 *            the player playing first.
+	 * @param two
+	 *            the player playing second.
+	 * @param moves
+	 *            the moves, as a new command, or null for none.
+	 * @return the game, in the position after the moves.
+	 */
+	static Game newGame(Player one, Player two, String moves) {
+		Game game = new Game(Two.two(one, two));
+		game.initGame(moves == null ? null : new Command(moves).moves());
+		return game;
+	}
+
+	/**
+	 * Creates a game between two humans, after some moves.
+	 *
+	 * @param moves
+	 *            the moves, as a new command, or null for none.
+	 * @return the game, in the position after the moves.
+	 */
+	static Game newGame(String moves) {
+		return newGame(new Human("Player 1"), new Human("Player 2"), moves);
+	}
+
+}
@@ -0,0 +1,46 @@
+package quoridor.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import quoridor.Subject;
+import quoridor.Tournament;
+
+public class TournamentTest {
+
+	static final int SUBJECTS = 3;
+
+	Tournament play(int threads) {
+		// weights for which some games are won by each player, and one is a
+		// draw
+		Random random = new Random(4);
+		Subject[] subjects = new Subject[SUBJECTS];
+		for (int i = 0; i < SUBJECTS; i++) {
+			subjects[i] = new Subject(new float[] { 0.0f,
+					random.nextFloat() * 2 - 1, random.nextFloat() * 2 - 1,
+					random.nextFloat() * 2 - 1 });
+		}
+		Tournament tournament = new Tournament(subjects, 7, threads);
+		tournament.play();
+		return tournament;
+	}
+
+	@Test
+	public void resultsDontDependOnTheThreads() {
+		Tournament one = play(1);
+		Tournament four = play(4);
+		for (int i = 0; i < SUBJECTS; i++) {
+			assertEquals("fitness of " + i, one.fitness(i), four.fitness(i));
+			for (int j = 0; j < SUBJECTS; j++) {
+				if (i != j) {
+					assertEquals(i + " against " + j, one.result(i, j),
+							four.result(i, j));
+				}
+			}
+		}
+	}
+
+}